@@ -1,6 +1,8 @@
 package com.budgettracker.spendex.config;
 
-import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.PrincipalCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,27 +10,38 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
 
 @Configuration
 public class ApplicationConfig {
 
-    private final UserRepo userRepository;
+    private final PrincipalCache principalCache;
+
+    @Value("${spendex.password-hashing.threads:2}")
+    private int hashingThreads;
+
+    @Value("${spendex.password-hashing.queue-capacity:50}")
+    private int hashingQueueCapacity;
+
+    @Value("${spendex.password-hashing.max-wait:PT5S}")
+    private Duration hashingMaxWait;
 
-    public ApplicationConfig(UserRepo userRepo) {
-        this.userRepository = userRepo;
+    public ApplicationConfig(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
     }
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return principalCache::get;
     }
 
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), hashingThreads, hashingQueueCapacity,
+                hashingMaxWait, meterRegistry);
     }
 
     @Bean
@@ -37,10 +50,10 @@ public class ApplicationConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 }
@@ -1,10 +1,16 @@
 package com.budgettracker.spendex.config;
 
+import com.budgettracker.spendex.models.User;
 import com.budgettracker.spendex.services.JwtService;
+import com.budgettracker.spendex.services.RefreshTokenService;
+import com.budgettracker.spendex.services.TokenVersionRegistry;
+import com.budgettracker.spendex.services.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -27,11 +33,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final UserDetailsService userDetailsService;
 
+    private final TokenVersionRegistry tokenVersionRegistry;
 
-    public JwtAuthenticationFilter(HandlerExceptionResolver handlerExceptionResolver, JwtService jwtService, UserDetailsService userDetailsService) {
+    private final RefreshTokenService refreshTokenService;
+
+    // build the authentication from token claims only, without loading the user
+    @Value("${security.jwt.stateless:false}")
+    private boolean stateless;
+
+
+    public JwtAuthenticationFilter(HandlerExceptionResolver handlerExceptionResolver, JwtService jwtService, UserDetailsService userDetailsService, TokenVersionRegistry tokenVersionRegistry, RefreshTokenService refreshTokenService) {
         this.handlerExceptionResolver = handlerExceptionResolver;
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @Override
@@ -51,16 +67,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             jwt = authHeader.substring(7); // Bearer length is 7
-            userEmail = jwtService.extractUsername(jwt);
+            VerifiedToken verifiedToken = jwtService.verify(jwt);
+            userEmail = verifiedToken.subject();
 
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
             if (userEmail != null && authentication == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                if (verifiedToken.isRefreshToken()) {
+                    throw new JwtException("Refresh tokens cannot be used as access tokens");
+                }
+                // logout, refresh-token reuse or a disabled account revoked the login this token came from
+                if (refreshTokenService.isSessionRevoked(verifiedToken)) {
+                    throw new JwtException("Token has been revoked");
+                }
+
+                UsernamePasswordAuthenticationToken authToken = null;
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                if (stateless && verifiedToken.userId() != null && verifiedToken.tokenVersion() != null) {
+                    authToken = fromClaims(verifiedToken);
+                } else {
+                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
 
+                    if (jwtService.isTokenValid(verifiedToken, userDetails)) {
+                        authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    }
+                }
+
+                if (authToken != null) {
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
@@ -71,4 +104,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             handlerExceptionResolver.resolveException(request, response, null, exception);
         }
     }
+
+    // the principal only carries id, email and role - enough for the ownership checks in the services
+    private UsernamePasswordAuthenticationToken fromClaims(VerifiedToken token) {
+        if (token.role() == null) {
+            throw new JwtException("Token carries no role");
+        }
+        if (!tokenVersionRegistry.isCurrent(token.userId(), token.tokenVersion())) {
+            throw new JwtException("Token has been revoked");
+        }
+
+        User principal = User.builder()
+                .id(token.userId())
+                .email(token.subject())
+                .role(token.role())
+                .tokenVersion(token.tokenVersion())
+                .build();
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
 }
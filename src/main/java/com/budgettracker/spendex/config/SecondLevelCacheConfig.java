@@ -0,0 +1,107 @@
+package com.budgettracker.spendex.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.persistence.SharedCacheMode;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+// opt-in Hibernate second-level cache for budgets, categories and users, backed by Caffeine through JCache.
+// Every region is created here with the size and TTL from spendex.cache.second-level.regions.<region>.*
+// Bulk JPQL (the set-based budget/category deletes) evicts the regions of the tables it touches, so those
+// stay coherent as well; native SQL against these tables would not
+@Configuration
+public class SecondLevelCacheConfig {
+
+    private static final String ENABLED = "spendex.cache.second-level.enabled";
+
+    // must match the regions named in the @Cache annotations of the entities
+    private static final List<String> ENTITY_REGIONS = List.of("budget", "budget-categories", "category", "user");
+    private static final String REGION_PREFIX = "spendex.cache.second-level.regions.";
+
+    @Value("${spendex.cache.second-level.query-cache:true}")
+    private boolean queryCache;
+
+    @Value("${spendex.cache.second-level.default-max-entries:10000}")
+    private long defaultMaxEntries;
+
+    @Value("${spendex.cache.second-level.default-ttl:PT1H}")
+    private Duration defaultTtl;
+
+    // hibernate-jcache on the classpath and @Cacheable entities are enough for Hibernate to start the cache on its
+    // own, with unbounded regions created on the fly, so it is switched off explicitly
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false", matchIfMissing = true)
+    public HibernatePropertiesCustomizer noSecondLevelCache() {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+            properties.put(AvailableSettings.JAKARTA_SHARED_CACHE_MODE, SharedCacheMode.NONE);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    public HibernatePropertiesCustomizer secondLevelCache(Environment environment, MeterRegistry meterRegistry) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+
+        List<String> regions = new ArrayList<>(ENTITY_REGIONS);
+        if (queryCache) {
+            regions.add(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+        }
+        for (String region : regions) {
+            long maxEntries = environment.getProperty(REGION_PREFIX + region + ".max-entries", Long.class, defaultMaxEntries);
+            Duration ttl = environment.getProperty(REGION_PREFIX + region + ".ttl", Duration.class, defaultTtl);
+            createCache(cacheManager, region, OptionalLong.of(maxEntries), OptionalLong.of(ttl.toNanos()), meterRegistry);
+        }
+        if (queryCache) {
+            // decides whether a cached query result is stale, so it is never evicted
+            createCache(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                    OptionalLong.empty(), OptionalLong.empty(), meterRegistry);
+        }
+
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, queryCache);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            // a region without settings above is a mistake, not something to create with defaults
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // categories are saved through Category.budget, so the cached Budget.categories has to be evicted then
+            properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+        };
+    }
+
+    private static void createCache(CacheManager cacheManager, String name, OptionalLong maxEntries,
+                                    OptionalLong ttlNanos, MeterRegistry meterRegistry) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxEntries);
+        configuration.setExpireAfterWrite(ttlNanos);
+        configuration.setStatisticsEnabled(true);
+
+        if (cacheManager.getCache(name) != null) {
+            // left over from an earlier application context in the same JVM
+            cacheManager.destroyCache(name);
+        }
+        Cache<Object, Object> cache = cacheManager.createCache(name, configuration);
+        // cache.gets / cache.puts / cache.evictions tagged cache=<region> under /actuator/metrics
+        JCacheMetrics.monitor(meterRegistry, cache);
+    }
+}
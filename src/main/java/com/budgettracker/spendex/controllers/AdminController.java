@@ -0,0 +1,193 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.BackfillStatus;
+import com.budgettracker.spendex.dto.BalanceReport;
+import com.budgettracker.spendex.dto.ExportFormat;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.services.AdminListingService;
+import com.budgettracker.spendex.services.BalanceService;
+import com.budgettracker.spendex.services.RollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final BalanceService balanceService;
+    private final RollupService rollupService;
+    private final AdminListingService adminListingService;
+
+    public AdminController(BalanceService balanceService, RollupService rollupService,
+                           AdminListingService adminListingService) {
+        this.balanceService = balanceService;
+        this.rollupService = rollupService;
+        this.adminListingService = adminListingService;
+    }
+
+    // VERIFY CATEGORY BALANCES
+    @Operation(
+            summary = "Compare stored category balances with their transactions",
+            description = "Recomputes every category balance from its transactions and reports the ones that differ. Nothing is changed. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Verification report"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/balances/verify")
+    public ResponseEntity<BalanceReport> verifyBalances() {
+        return ResponseEntity.ok(balanceService.verify(false));
+    }
+
+    // REBUILD CATEGORY BALANCES
+    @Operation(
+            summary = "Rebuild category balances from transactions",
+            description = "Recomputes every category balance and corrects the ones that differ or are missing. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Rebuild report"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @PostMapping("/balances/rebuild")
+    public ResponseEntity<BalanceReport> rebuildBalances() {
+        return ResponseEntity.ok(balanceService.verify(true));
+    }
+
+    // BACK-FILL ROLLUPS
+    @Operation(
+            summary = "Rebuild the daily and monthly rollups",
+            description = "Starts a background job that recomputes the rollups of every category from its transactions, chunk by chunk. Does nothing if a back-fill is already running. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Back-fill started or already running"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<BackfillStatus> startRollupBackfill() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(rollupService.startBackfill());
+    }
+
+    // ROLLUP BACK-FILL PROGRESS
+    @Operation(
+            summary = "Get rollup back-fill status",
+            description = "Returns the state and progress of the last rollup back-fill. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Back-fill status retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/rollups/backfill")
+    public ResponseEntity<BackfillStatus> getRollupBackfillStatus() {
+        return ResponseEntity.ok(rollupService.getBackfillStatus());
+    }
+
+    // EXPORT USERS
+    @Operation(
+            summary = "Export all users",
+            description = "Streams every user in id order as CSV or newline-delimited JSON, optionally filtered by role and enabled flag. Password hashes are never included. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format or role"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/export/users")
+    public void exportUsers(@RequestParam(defaultValue = "csv") String format,
+                            @RequestParam(required = false) Role role,
+                            @RequestParam(required = false) Boolean enabled,
+                            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = startExport(format, "users", response);
+        adminListingService.exportUsers(exportFormat, role, enabled, response.getOutputStream());
+    }
+
+    // EXPORT BUDGETS
+    @Operation(
+            summary = "Export all budgets",
+            description = "Streams every budget in id order as CSV or newline-delimited JSON, optionally filtered by owning user. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/export/budgets")
+    public void exportBudgets(@RequestParam(defaultValue = "csv") String format,
+                              @RequestParam(required = false) Long userId,
+                              HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = startExport(format, "budgets", response);
+        adminListingService.exportBudgets(exportFormat, userId, response.getOutputStream());
+    }
+
+    // EXPORT CATEGORIES
+    @Operation(
+            summary = "Export all categories",
+            description = "Streams every category in id order as CSV or newline-delimited JSON, optionally filtered by owning user and budget. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/export/categories")
+    public void exportCategories(@RequestParam(defaultValue = "csv") String format,
+                                 @RequestParam(required = false) Long userId,
+                                 @RequestParam(required = false) Long budgetId,
+                                 HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = startExport(format, "categories", response);
+        adminListingService.exportCategories(exportFormat, userId, budgetId, response.getOutputStream());
+    }
+
+    // EXPORT TRANSACTIONS
+    @Operation(
+            summary = "Export all transactions",
+            description = "Streams every transaction oldest first as CSV or newline-delimited JSON, optionally filtered by owning user and date range (from and to inclusive). Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format or invalid date range"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/export/transactions")
+    public void exportTransactions(@RequestParam(defaultValue = "csv") String format,
+                                   @RequestParam(required = false) Long userId,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = startExport(format, "transactions", response);
+        adminListingService.exportTransactions(exportFormat, userId, from, to, response.getOutputStream());
+    }
+
+    private static ExportFormat startExport(String format, String name, HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + exportFormat.getExtension() + "\"");
+        return exportFormat;
+    }
+}
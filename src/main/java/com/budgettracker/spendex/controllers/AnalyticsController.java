@@ -0,0 +1,51 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.SpendingAnalytics;
+import com.budgettracker.spendex.services.AnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    public AnalyticsController(AnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    // SPENDING ANALYTICS
+    @Operation(
+            summary = "Get spending totals of the current user",
+            description = "Sums the current user's income and expense transactions separately between from and to (inclusive, both optional). Can be narrowed to a set of categories and an amount band. With breakdown=true the totals are also returned per category, with its type."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Totals calculated"),
+            @ApiResponse(responseCode = "400", description = "Invalid dates, category IDs or amounts"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/spending")
+    public ResponseEntity<SpendingAnalytics> getSpending(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<Long> categoryIds,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(defaultValue = "true") boolean breakdown) {
+        return ResponseEntity.ok(analyticsService.getSpending(from, to, categoryIds, minAmount, maxAmount, breakdown));
+    }
+}
@@ -61,6 +61,21 @@ public class AuthenticationController {
 
     }
 
+    @Operation(
+            summary = "Log out",
+            description = "Revokes the refresh token together with all tokens rotated from the same login."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Refresh token revoked"),
+            @ApiResponse(responseCode = "400", description = "Invalid refresh token"),
+            @ApiResponse(responseCode = "401", description = "Token invalid or expired")
+    })
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestParam("token") String refreshToken) {
+        authenticationService.logout(refreshToken);
+        return ResponseEntity.noContent().build();
+    }
+
     @Operation(
             summary = "Validate JWT token",
             description = "Checks whether a JWT token is valid and not expired."
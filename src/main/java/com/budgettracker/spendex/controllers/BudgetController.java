@@ -1,7 +1,14 @@
 package com.budgettracker.spendex.controllers;
 
+import com.budgettracker.spendex.dto.BudgetPatch;
+import com.budgettracker.spendex.dto.BudgetSummary;
+import com.budgettracker.spendex.dto.BudgetView;
+import com.budgettracker.spendex.dto.CursorPage;
+import com.budgettracker.spendex.dto.Expansion;
 import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.services.AdminListingService;
 import com.budgettracker.spendex.services.BudgetService;
+import com.budgettracker.spendex.services.VersionGuard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -9,10 +16,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @SecurityRequirement(name = "bearerAuth")
@@ -21,9 +32,14 @@ import java.util.List;
 public class BudgetController {
 
     private final BudgetService budgetService;
+    private final AdminListingService adminListingService;
+    private final VersionGuard versionGuard;
 
-    public BudgetController(BudgetService budgetService) {
+    public BudgetController(BudgetService budgetService, AdminListingService adminListingService,
+                            VersionGuard versionGuard) {
         this.budgetService = budgetService;
+        this.adminListingService = adminListingService;
+        this.versionGuard = versionGuard;
     }
 
     // CREATE BUDGET
@@ -39,43 +55,91 @@ public class BudgetController {
             @ApiResponse(responseCode = "401", description = "Unauthorized - no or invalid token")
     })
     @PostMapping
-    public ResponseEntity<Budget> addBudget(@RequestBody @Valid Budget budget) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(budgetService.createBudget(budget));
+    public ResponseEntity<BudgetView> addBudget(@RequestBody @Valid Budget budget) {
+        BudgetView created = BudgetView.from(budgetService.createBudget(budget));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionGuard.etag(created.version())).body(created);
     }
 
     // GET BUDGET BY ID
     @Operation(
             summary = "Get budget by ID",
-            description = "Returns a budget by its ID. Users can only view their own budgets unless they are ADMIN."
+            description = "Returns a budget by its ID. expand=categories adds its categories, expand=transactions also their transactions. The ETag header carries the version to send back as If-Match. Users can only view their own budgets unless they are ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Budget retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Budget not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - user tried to access another user's budget"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
-            @ApiResponse(responseCode = "400", description = "Invalid ID format")
+            @ApiResponse(responseCode = "400", description = "Invalid ID format or expand value")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Budget> getBudgetById(@PathVariable Long id) {
-        return ResponseEntity.ok(budgetService.getBudget(id));
+    public ResponseEntity<BudgetView> getBudgetById(@PathVariable Long id,
+                                                    @RequestParam(required = false) List<String> expand) {
+        return withETag(budgetService.getBudgetView(id, Expansion.parse(expand)));
+    }
+
+    // GET BUDGET TREE
+    @Operation(
+            summary = "Get budget with categories and transactions",
+            description = "Returns a budget with all its categories and their transactions, loaded in a fixed number of queries. from and to (inclusive, both optional) limit the transactions; categories are always listed. Users can only view their own budgets unless they are ADMIN."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Budget tree retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Budget not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - user tried to access another user's budget"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "400", description = "Invalid ID or date format, or 'from' after 'to'")
+    })
+    @GetMapping("/{id}/tree")
+    public ResponseEntity<BudgetView> getBudgetTree(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(budgetService.getBudgetTree(id, from, to));
     }
 
     // UPDATE BUDGET
     @Operation(
             summary = "Update an existing budget",
-            description = "Updates an existing budget. Users can update only their own budgets unless they are ADMIN."
+            description = "Replaces every field of a budget. Send the ETag of the last read as If-Match to get 412 instead of overwriting a newer change. Users can update only their own budgets unless they are ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Budget updated successfully"),
             @ApiResponse(responseCode = "404", description = "Budget not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot update another user's budget"),
+            @ApiResponse(responseCode = "409", description = "Budget was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Budget changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
             @ApiResponse(responseCode = "422", description = "Validation failed"),
             @ApiResponse(responseCode = "400", description = "Malformed request"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<Budget> updateBudget(@PathVariable Long id, @RequestBody @Valid Budget budgetDetails) {
-        return ResponseEntity.ok(budgetService.updateBudget(id, budgetDetails));
+    public ResponseEntity<BudgetView> updateBudget(@PathVariable Long id, @RequestBody @Valid Budget budgetDetails,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(BudgetView.from(budgetService.updateBudget(id, budgetDetails, versionGuard.expectedVersion(ifMatch))));
+    }
+
+    // PATCH BUDGET
+    @Operation(
+            summary = "Partially update a budget",
+            description = "Changes only the fields present in the body. Send the ETag of the last read as If-Match to get 412 instead of overwriting a newer change. Users can update only their own budgets unless they are ADMIN."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Budget updated successfully"),
+            @ApiResponse(responseCode = "404", description = "Budget not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - cannot update another user's budget"),
+            @ApiResponse(responseCode = "409", description = "Budget was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Budget changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
+            @ApiResponse(responseCode = "422", description = "Validation failed"),
+            @ApiResponse(responseCode = "400", description = "Malformed request or no field given"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<BudgetView> patchBudget(@PathVariable Long id, @RequestBody @Valid BudgetPatch patch,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(BudgetView.from(budgetService.patchBudget(id, patch, versionGuard.expectedVersion(ifMatch))));
     }
 
     // DELETE BUDGET
@@ -87,27 +151,85 @@ public class BudgetController {
             @ApiResponse(responseCode = "204", description = "Budget deleted successfully"),
             @ApiResponse(responseCode = "404", description = "Budget not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot delete another user's budget"),
+            @ApiResponse(responseCode = "409", description = "Budget was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Budget changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "400", description = "Invalid ID format")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteBudget(@PathVariable Long id) {
-        budgetService.deleteBudget(id);
+    public ResponseEntity<Void> deleteBudget(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        budgetService.deleteBudget(id, versionGuard.expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
     // LIST BUDGETS
     @Operation(
             summary = "Get all budgets",
-            description = "Returns all budgets visible to the current user. Normal users see only their own. ADMIN sees all."
+            description = "Returns the current user's budgets, ADMIN included (ADMIN pages through everyone's budgets with /api/budgets/all). Nested categories and transactions are left out unless requested with expand=categories or expand=categories,transactions."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "List of budgets"),
+            @ApiResponse(responseCode = "400", description = "Unknown expand value"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping
-    public ResponseEntity<List<Budget>> getAllBudgets() {
-        return  ResponseEntity.ok(budgetService.getAllBudgets());
+    public ResponseEntity<List<BudgetView>> getAllBudgets(@RequestParam(required = false) List<String> expand) {
+        return  ResponseEntity.ok(budgetService.getAllBudgets(Expansion.parse(expand)));
+    }
+
+    // LIST ALL BUDGETS (ADMIN only)
+    @Operation(
+            summary = "Get all budgets, one page at a time",
+            description = "Returns every user's budgets in id order, optionally filtered by owning user. Pass nextCursor from the previous page as cursor to continue. Only accessible to ADMIN users."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page of budgets retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
+    })
+    @GetMapping("/all")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<BudgetView>> getEveryBudget(@RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer size,
+                                                                 @RequestParam(required = false) Long userId) {
+        return ResponseEntity.ok(adminListingService.getBudgets(cursor, size, userId));
     }
 
+    // BUDGET SUMMARY
+    @Operation(
+            summary = "Get budget summary",
+            description = "Returns income, expense and per-category totals of a budget, computed by the database. Users can only view their own budgets unless they are ADMIN."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Summary retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Budget not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - user tried to access another user's budget"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "400", description = "Invalid ID format")
+    })
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<BudgetSummary> getBudgetSummary(@PathVariable Long id) {
+        return ResponseEntity.ok(budgetService.getBudgetSummary(id));
+    }
+
+    // SUMMARY OF ALL OWN BUDGETS
+    @Operation(
+            summary = "Get summary of all own budgets",
+            description = "Returns income and expense totals for every budget of the current user."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Summaries retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/summary")
+    public ResponseEntity<List<BudgetSummary>> getSummaryOverview() {
+        return ResponseEntity.ok(budgetService.getSummaryOverview());
+    }
+
+    private static ResponseEntity<BudgetView> withETag(BudgetView budget) {
+        return ResponseEntity.ok().eTag(VersionGuard.etag(budget.version())).body(budget);
+    }
 }
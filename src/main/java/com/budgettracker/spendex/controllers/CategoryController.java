@@ -1,7 +1,13 @@
 package com.budgettracker.spendex.controllers;
 
+import com.budgettracker.spendex.dto.CategoryPatch;
+import com.budgettracker.spendex.dto.CategoryView;
+import com.budgettracker.spendex.dto.CursorPage;
+import com.budgettracker.spendex.dto.Expansion;
 import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.services.AdminListingService;
 import com.budgettracker.spendex.services.CategoryService;
+import com.budgettracker.spendex.services.VersionGuard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -9,6 +15,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,9 +30,14 @@ import java.util.Map;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final AdminListingService adminListingService;
+    private final VersionGuard versionGuard;
 
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, AdminListingService adminListingService,
+                              VersionGuard versionGuard) {
         this.categoryService = categoryService;
+        this.adminListingService = adminListingService;
+        this.versionGuard = versionGuard;
     }
 
     // CREATE CATEGORY
@@ -42,43 +54,71 @@ public class CategoryController {
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot add category to another user's budget")
     })
     @PostMapping
-    public ResponseEntity<Category> addCategory(@RequestBody @Valid Category category) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(categoryService.createCategory(category));
+    public ResponseEntity<CategoryView> addCategory(@RequestBody @Valid Category category) {
+        CategoryView created = CategoryView.from(categoryService.createCategory(category));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionGuard.etag(created.version())).body(created);
     }
 
     // GET CATEGORY BY ID
     @Operation(
             summary = "Get category by ID",
-            description = "Returns a category by its ID. Users can only view their own categories unless they are ADMIN."
+            description = "Returns a category by its ID, with its transactions when expand=transactions. The ETag header carries the version to send back as If-Match. Users can only view their own categories unless they are ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Category retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Category not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot view another user's category"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
-            @ApiResponse(responseCode = "400", description = "Invalid ID format")
+            @ApiResponse(responseCode = "400", description = "Invalid ID format or expand value")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategory(@PathVariable Long id) {
-        return ResponseEntity.ok(categoryService.getCategory(id));
+    public ResponseEntity<CategoryView> getCategory(@PathVariable Long id,
+                                                    @RequestParam(required = false) List<String> expand) {
+        return withETag(categoryService.getCategoryView(id, Expansion.parse(expand)));
     }
 
     // UPDATE CATEGORY
     @Operation(
             summary = "Update an existing category",
-            description = "Updates an existing category. Users can update only their own categories unless ADMIN."
+            description = "Replaces every field of a category. Send the ETag of the last read as If-Match to get 412 instead of overwriting a newer change. Users can update only their own categories unless ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Category updated successfully"),
             @ApiResponse(responseCode = "404", description = "Category not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot update another user's category"),
+            @ApiResponse(responseCode = "409", description = "Category was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Category changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
             @ApiResponse(responseCode = "422", description = "Validation failed"),
             @ApiResponse(responseCode = "400", description = "Malformed request"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<Category> updateCategory(@PathVariable Long id, @RequestBody @Valid Category categoryDetails) {
-        return ResponseEntity.ok(categoryService.updateCategory(id, categoryDetails));
+    public ResponseEntity<CategoryView> updateCategory(@PathVariable Long id, @RequestBody @Valid Category categoryDetails,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(CategoryView.from(categoryService.updateCategory(id, categoryDetails, versionGuard.expectedVersion(ifMatch))));
+    }
+
+    // PATCH CATEGORY
+    @Operation(
+            summary = "Partially update a category",
+            description = "Changes only the fields present in the body. Send the ETag of the last read as If-Match to get 412 instead of overwriting a newer change. Users can update only their own categories unless ADMIN."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Category updated successfully"),
+            @ApiResponse(responseCode = "404", description = "Category not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - cannot update another user's category"),
+            @ApiResponse(responseCode = "409", description = "Category was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Category changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
+            @ApiResponse(responseCode = "422", description = "Validation failed"),
+            @ApiResponse(responseCode = "400", description = "Malformed request or no field given"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<CategoryView> patchCategory(@PathVariable Long id, @RequestBody @Valid CategoryPatch patch,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(CategoryView.from(categoryService.patchCategory(id, patch, versionGuard.expectedVersion(ifMatch))));
     }
 
     // DELETE CATEGORY
@@ -90,50 +130,61 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Category deleted successfully"),
             @ApiResponse(responseCode = "404", description = "Category not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot delete another user's category"),
+            @ApiResponse(responseCode = "409", description = "Category was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Category changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "400", description = "Invalid ID format")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteCategory(@PathVariable Long id) {
+    public ResponseEntity<?> deleteCategory(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         Category category = categoryService.getCategory(id);
         Long budgetId = category.getBudget().getId();
 
-        categoryService.deleteCategory(id);
+        categoryService.deleteCategory(id, versionGuard.expectedVersion(ifMatch));
         return ResponseEntity.ok(Map.of("budgetId", budgetId));
     }
 
     // LIST ALL CATEGORIES (ADMIN only)
     @Operation(
-            summary = "Get all categories",
-            description = "Returns all categories. Only accessible to ADMIN users."
+            summary = "Get all categories, one page at a time",
+            description = "Returns categories in id order, optionally filtered by owning user and budget. Pass nextCursor from the previous page as cursor to continue. Only accessible to ADMIN users."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "List of categories retrieved"),
+            @ApiResponse(responseCode = "200", description = "Page of categories retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
     })
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Category>> getAllCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategories());
+    public ResponseEntity<CursorPage<CategoryView>> getAllCategories(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) Integer size,
+                                                                     @RequestParam(required = false) Long userId,
+                                                                     @RequestParam(required = false) Long budgetId) {
+        return ResponseEntity.ok(adminListingService.getCategories(cursor, size, userId, budgetId));
     }
 
     // LIST CATEGORIES BY BUDGET
     @Operation(
             summary = "Get categories by budget ID",
-            description = "Returns all categories for a specific budget. Users can only view their own budget categories unless ADMIN."
+            description = "Returns all categories for a specific budget, with their transactions when expand=transactions. Users can only view their own budget categories unless ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Categories retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Budget not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot view another user's budget categories"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
-            @ApiResponse(responseCode = "400", description = "Invalid budget ID format")
+            @ApiResponse(responseCode = "400", description = "Invalid budget ID format or expand value")
     })
     @GetMapping("/by-budget/{budgetId}")
-    public ResponseEntity<List<Category>> getCategoriesByBudgetId(@PathVariable Long budgetId) {
-        return ResponseEntity.ok(categoryService.getCategoriesByBudget(budgetId));
+    public ResponseEntity<List<CategoryView>> getCategoriesByBudgetId(@PathVariable Long budgetId,
+                                                                      @RequestParam(required = false) List<String> expand) {
+        return ResponseEntity.ok(categoryService.getCategoriesByBudget(budgetId, Expansion.parse(expand)));
     }
 
-}
\ No newline at end of file
+    private static ResponseEntity<CategoryView> withETag(CategoryView category) {
+        return ResponseEntity.ok().eTag(VersionGuard.etag(category.version())).body(category);
+    }
+}
@@ -0,0 +1,49 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.TimeseriesPoint;
+import com.budgettracker.spendex.services.ReportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    private final ReportService reportService;
+
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+
+    // SPENDING OVER TIME
+    @Operation(
+            summary = "Get spending over time",
+            description = "Returns totals of the current user per category and day or month between from and to (inclusive). Can be narrowed to one budget or category."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Time series retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid dates, range or granularity"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/timeseries")
+    public ResponseEntity<List<TimeseriesPoint>> getTimeseries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) Long budgetId,
+            @RequestParam(required = false) Long categoryId) {
+        return ResponseEntity.ok(reportService.getTimeseries(from, to, granularity, budgetId, categoryId));
+    }
+}
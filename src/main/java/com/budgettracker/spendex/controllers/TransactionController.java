@@ -1,19 +1,37 @@
 package com.budgettracker.spendex.controllers;
 
+import com.budgettracker.spendex.dto.CursorPage;
+import com.budgettracker.spendex.dto.ExportFormat;
+import com.budgettracker.spendex.dto.ImportStatus;
+import com.budgettracker.spendex.dto.TransactionBatchOperation;
+import com.budgettracker.spendex.dto.TransactionBatchResult;
+import com.budgettracker.spendex.dto.TransactionPatch;
+import com.budgettracker.spendex.dto.TransactionView;
 import com.budgettracker.spendex.models.*;
+import com.budgettracker.spendex.services.AdminListingService;
+import com.budgettracker.spendex.services.TransactionBatchService;
+import com.budgettracker.spendex.services.TransactionImportService;
 import com.budgettracker.spendex.services.TransactionService;
+import com.budgettracker.spendex.services.VersionGuard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @SecurityRequirement(name = "bearerAuth")
@@ -22,9 +40,19 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionImportService transactionImportService;
+    private final TransactionBatchService transactionBatchService;
+    private final AdminListingService adminListingService;
+    private final VersionGuard versionGuard;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, TransactionImportService transactionImportService,
+                                 TransactionBatchService transactionBatchService, AdminListingService adminListingService,
+                                 VersionGuard versionGuard) {
         this.transactionService = transactionService;
+        this.transactionImportService = transactionImportService;
+        this.transactionBatchService = transactionBatchService;
+        this.adminListingService = adminListingService;
+        this.versionGuard = versionGuard;
     }
 
     // CREATE TRANSACTION
@@ -42,13 +70,14 @@ public class TransactionController {
     })
     @PostMapping
     public ResponseEntity<Transaction> addTransaction(@RequestBody @Valid Transaction transaction) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(transactionService.createTransaction(transaction));
+        Transaction created = transactionService.createTransaction(transaction);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionGuard.etag(created.getVersion())).body(created);
     }
 
     // GET TRANSACTION BY ID
     @Operation(
             summary = "Get transaction by ID",
-            description = "Returns a transaction by its ID. Users can only view their own transactions unless ADMIN."
+            description = "Returns a transaction by its ID. The ETag header carries the version to send back as If-Match. Users can only view their own transactions unless ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Transaction retrieved successfully"),
@@ -59,25 +88,51 @@ public class TransactionController {
     })
     @GetMapping("/{id}")
     public ResponseEntity<Transaction> getTransactionById(@PathVariable long id) {
-        return ResponseEntity.ok(transactionService.getTransaction(id));
+        return withETag(transactionService.getTransaction(id));
     }
 
     // UPDATE TRANSACTION
     @Operation(
             summary = "Update an existing transaction",
-            description = "Updates a transaction. Users can update only their own transactions unless ADMIN."
+            description = "Replaces every field of a transaction. Send the ETag of the last read as If-Match to get 412 instead of overwriting a newer change. Users can update only their own transactions unless ADMIN."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Transaction updated successfully"),
             @ApiResponse(responseCode = "404", description = "Transaction not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot update another user's transaction"),
+            @ApiResponse(responseCode = "409", description = "Transaction was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Transaction changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
             @ApiResponse(responseCode = "422", description = "Validation failed"),
             @ApiResponse(responseCode = "400", description = "Malformed request"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<Transaction> updateTransaction(@PathVariable long id, @RequestBody @Valid Transaction transactionDetails) {
-        return ResponseEntity.ok(transactionService.updateTransaction(id, transactionDetails));
+    public ResponseEntity<Transaction> updateTransaction(@PathVariable long id, @RequestBody @Valid Transaction transactionDetails,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(transactionService.updateTransaction(id, transactionDetails, versionGuard.expectedVersion(ifMatch)));
+    }
+
+    // PATCH TRANSACTION
+    @Operation(
+            summary = "Partially update a transaction",
+            description = "Changes only the fields present in the body. Send the ETag of the last read as If-Match to get 412 instead of overwriting a newer change. Users can update only their own transactions unless ADMIN."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Transaction updated successfully"),
+            @ApiResponse(responseCode = "404", description = "Transaction not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - cannot update another user's transaction"),
+            @ApiResponse(responseCode = "409", description = "Transaction was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Transaction changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
+            @ApiResponse(responseCode = "422", description = "Validation failed"),
+            @ApiResponse(responseCode = "400", description = "Malformed request or no field given"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<Transaction> patchTransaction(@PathVariable long id, @RequestBody @Valid TransactionPatch patch,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(transactionService.patchTransaction(id, patch, versionGuard.expectedVersion(ifMatch)));
     }
 
     // DELETE TRANSACTION
@@ -89,29 +144,38 @@ public class TransactionController {
             @ApiResponse(responseCode = "204", description = "Transaction deleted successfully"),
             @ApiResponse(responseCode = "404", description = "Transaction not found"),
             @ApiResponse(responseCode = "403", description = "Forbidden - cannot delete another user's transaction"),
+            @ApiResponse(responseCode = "409", description = "Transaction was changed concurrently"),
+            @ApiResponse(responseCode = "412", description = "Transaction changed since the version in If-Match"),
+            @ApiResponse(responseCode = "428", description = "If-Match is required"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "400", description = "Invalid ID format")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTransaction(@PathVariable long id) {
-        transactionService.deleteTransaction(id);
+    public ResponseEntity<Void> deleteTransaction(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        transactionService.deleteTransaction(id, versionGuard.expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
     // LIST ALL TRANSACTIONS (ADMIN only)
     @Operation(
-            summary = "Get all transactions",
-            description = "Returns all transactions. Only accessible to ADMIN users."
+            summary = "Get all transactions, one page at a time",
+            description = "Returns transactions newest first, optionally filtered by owning user and date range (from and to inclusive). Pass nextCursor from the previous page as cursor to continue. Only accessible to ADMIN users."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "List of transactions retrieved"),
+            @ApiResponse(responseCode = "200", description = "Page of transactions retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, page size or date range"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can access")
     })
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        return ResponseEntity.ok(transactionService.getAllTransactions());
+    public ResponseEntity<CursorPage<TransactionView>> getAllTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(adminListingService.getTransactions(cursor, size, userId, from, to));
     }
 
     // LIST TRANSACTIONS BY CATEGORY
@@ -127,8 +191,114 @@ public class TransactionController {
             @ApiResponse(responseCode = "400", description = "Invalid category ID format")
     })
     @GetMapping("/by-category/{categoryId}")
-    public ResponseEntity<List<Transaction>> getAllTransactionsByCategory(@PathVariable long categoryId) {
+    public ResponseEntity<List<TransactionView>> getAllTransactionsByCategory(@PathVariable long categoryId) {
         return ResponseEntity.ok(transactionService.getTransactionsByCategory(categoryId));
     }
 
+    // PAGED LIST OF TRANSACTIONS BY CATEGORY
+    @Operation(
+            summary = "Get transactions by category ID, one page at a time",
+            description = "Returns transactions of a category newest first. Pass nextCursor from the previous page as cursor to continue."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page of transactions retrieved"),
+            @ApiResponse(responseCode = "404", description = "Category not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - cannot view another user's category transactions"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "400", description = "Invalid category ID, cursor or page size")
+    })
+    @GetMapping("/by-category/{categoryId}/page")
+    public ResponseEntity<CursorPage<TransactionView>> getTransactionsByCategoryPage(@PathVariable long categoryId,
+                                                                                     @RequestParam(required = false) String cursor,
+                                                                                     @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(transactionService.getTransactionsByCategoryPage(categoryId, cursor, size));
+    }
+
+    // SEARCH TRANSACTIONS
+    @Operation(
+            summary = "Search the current user's transactions by description",
+            description = "Returns transactions whose description contains every word of q (words match as prefixes, so 'ub' finds 'Uber'), newest first. Pass nextCursor from the previous page as cursor to continue."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page of matching transactions retrieved"),
+            @ApiResponse(responseCode = "400", description = "Empty query, invalid cursor or page size"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<TransactionView>> searchTransactions(@RequestParam String q,
+                                                                          @RequestParam(required = false) String cursor,
+                                                                          @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(transactionService.searchTransactions(q, cursor, size));
+    }
+
+    // EXPORT CURRENT USER'S TRANSACTIONS
+    @Operation(
+            summary = "Export all of the current user's transactions",
+            description = "Streams every transaction of the authenticated user, oldest first, as CSV or newline-delimited JSON."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/export")
+    public void exportTransactions(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"");
+        transactionService.exportTransactions(exportFormat, response.getOutputStream());
+    }
+
+    // BULK IMPORT FROM CSV
+    @Operation(
+            summary = "Import transactions from CSV",
+            description = "Starts a background import of a CSV file with a header row and the columns date, amount, description and category_id. Poll the returned import for progress. Rows are committed in chunks: a failed import keeps the rows up to lastCommittedLine and can be resumed with the lines after it."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Import accepted"),
+            @ApiResponse(responseCode = "400", description = "Empty file"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "429", description = "Too many imports in progress")
+    })
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportStatus> importTransactions(@RequestParam("file") MultipartFile file) throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(transactionImportService.startImport(file));
+    }
+
+    // IMPORT PROGRESS
+    @Operation(
+            summary = "Get import status",
+            description = "Returns progress and row errors of a CSV import started by the current user."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import status retrieved"),
+            @ApiResponse(responseCode = "404", description = "Import not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - import belongs to another user"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/import/{importId}")
+    public ResponseEntity<ImportStatus> getImportStatus(@PathVariable String importId) {
+        return ResponseEntity.ok(transactionImportService.getStatus(importId));
+    }
+
+    // BATCH CREATE / UPDATE / DELETE
+    @Operation(
+            summary = "Apply a batch of transaction changes",
+            description = "Applies create, update and delete operations in one database transaction. Each item gets its own result status; invalid or forbidden items are skipped without failing the rest. Updates and deletes may carry the version that was read; a stale one fails that item with 412."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+            @ApiResponse(responseCode = "409", description = "A transaction was changed concurrently, nothing was applied"),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch, or malformed JSON"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<TransactionBatchResult>> applyBatch(@RequestBody List<TransactionBatchOperation> operations) {
+        return ResponseEntity.ok(transactionBatchService.apply(operations));
+    }
+
+    private static ResponseEntity<Transaction> withETag(Transaction transaction) {
+        return ResponseEntity.ok().eTag(VersionGuard.etag(transaction.getVersion())).body(transaction);
+    }
 }
@@ -1,7 +1,10 @@
 package com.budgettracker.spendex.controllers;
 
+import com.budgettracker.spendex.dto.CursorPage;
 import com.budgettracker.spendex.dto.UserProfileUpdateDTO;
-import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.dto.UserView;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.services.AdminListingService;
 import com.budgettracker.spendex.services.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,17 +14,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @SecurityRequirement(name = "bearerAuth")
 @RestController
 @RequestMapping("/api/user")
 public class UserController {
 
     private final UserService userService;
+    private final AdminListingService adminListingService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, AdminListingService adminListingService) {
         this.userService = userService;
+        this.adminListingService = adminListingService;
     }
 
     @Operation(
@@ -33,8 +36,8 @@ public class UserController {
             @ApiResponse(responseCode = "401", description = "Unauthorized - no or invalid token")
     })
     @GetMapping("/me")
-    public ResponseEntity<User> getMyProfile() {
-        return ResponseEntity.ok(userService.getProfile());
+    public ResponseEntity<UserView> getMyProfile() {
+        return ResponseEntity.ok(UserView.from(userService.getProfile()));
     }
 
     @Operation(
@@ -47,8 +50,8 @@ public class UserController {
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @PutMapping("/me")
-    public ResponseEntity<User> updateMyProfile(@RequestBody UserProfileUpdateDTO dto) {
-        return ResponseEntity.ok(userService.updateProfile(dto));
+    public ResponseEntity<UserView> updateMyProfile(@RequestBody UserProfileUpdateDTO dto) {
+        return ResponseEntity.ok(UserView.from(userService.updateProfile(dto)));
     }
 
     // ADMIN only
@@ -64,23 +67,27 @@ public class UserController {
     })
     @PutMapping("/{id}/toggle")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<User> toggleUser(@PathVariable Long id, @RequestParam boolean enabled) {
-        return ResponseEntity.ok(userService.toggleUser(id, enabled));
+    public ResponseEntity<UserView> toggleUser(@PathVariable Long id, @RequestParam boolean enabled) {
+        return ResponseEntity.ok(UserView.from(userService.toggleUser(id, enabled)));
     }
 
     @Operation(
-            summary = "Get all users",
-            description = "Returns a list of all users. Only accessible by ADMIN."
+            summary = "Get all users, one page at a time",
+            description = "Returns users in id order, optionally filtered by role and enabled flag. Pass nextCursor from the previous page as cursor to continue. Only accessible by ADMIN."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "List of users retrieved successfully"),
+            @ApiResponse(responseCode = "200", description = "Page of users retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, page size or role"),
             @ApiResponse(responseCode = "403", description = "Forbidden - only admin can access"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<CursorPage<UserView>> getAllUsers(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(required = false) Integer size,
+                                                            @RequestParam(required = false) Role role,
+                                                            @RequestParam(required = false) Boolean enabled) {
+        return ResponseEntity.ok(adminListingService.getUsers(cursor, size, role, enabled));
     }
 
 }
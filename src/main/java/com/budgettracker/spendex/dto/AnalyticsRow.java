@@ -0,0 +1,8 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// the columns the analytics cache keeps per transaction, type being the category's income/expense
+public record AnalyticsRow(LocalDate date, BigDecimal amount, Long categoryId, String type) {
+}
@@ -0,0 +1,18 @@
+package com.budgettracker.spendex.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackfillStatus {
+    private String state; // IDLE, RUNNING, COMPLETED, FAILED
+    private long processedCategories;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
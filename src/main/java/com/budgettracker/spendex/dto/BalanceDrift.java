@@ -0,0 +1,8 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+
+// storedTotal/storedCount are null when the category had no balance row
+public record BalanceDrift(Long categoryId, BigDecimal storedTotal, BigDecimal actualTotal,
+                           Long storedCount, long actualCount) {
+}
@@ -0,0 +1,15 @@
+package com.budgettracker.spendex.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BalanceReport {
+    private long checkedCategories;
+    private long driftedCategories;
+    private boolean fixed;
+    private List<BalanceDrift> drifts; // first 100 only
+}
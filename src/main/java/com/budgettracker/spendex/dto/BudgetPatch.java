@@ -0,0 +1,16 @@
+package com.budgettracker.spendex.dto;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+
+// PATCH body for a budget: fields left out (or null) keep their value
+public record BudgetPatch(@Pattern(regexp = "(?s).*\\S.*", message = "Name must not be blank") String name,
+                          @Size(max = 255, message = "Description must be at most 255 characters") String description,
+                          LocalDate startDate, LocalDate endDate) {
+
+    public boolean isEmpty() {
+        return name == null && description == null && startDate == null && endDate == null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.budgettracker.spendex.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BudgetSummary {
+    private Long budgetId;
+    private String name;
+    private BigDecimal totalIncome;
+    private BigDecimal totalExpense;
+    private BigDecimal balance; // income - expense
+    private List<CategorySummary> categories; // only in the single budget summary
+}
@@ -0,0 +1,11 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+
+// one (budget, income|expense) group of the overview query
+public record BudgetTypeTotal(Long budgetId, String budgetName, String type, BigDecimal total) {
+
+    public BudgetTypeTotal {
+        total = total == null ? BigDecimal.ZERO : total;
+    }
+}
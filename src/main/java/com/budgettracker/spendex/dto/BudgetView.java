@@ -0,0 +1,29 @@
+package com.budgettracker.spendex.dto;
+
+import com.budgettracker.spendex.models.Budget;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// budget as returned by the API; categories are only filled in when expand asks for them
+public record BudgetView(Long id, Long userId, String name, String description, LocalDate startDate,
+                         LocalDate endDate, LocalDateTime createdAt, LocalDateTime updatedAt, Long version,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) List<CategoryView> categories) {
+
+    // used by the JPQL constructor expressions
+    public BudgetView(Long id, Long userId, String name, String description, LocalDate startDate,
+                      LocalDate endDate, LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        this(id, userId, name, description, startDate, endDate, createdAt, updatedAt, version, null);
+    }
+
+    public static BudgetView from(Budget budget) {
+        return new BudgetView(budget.getId(), budget.getUser().getId(), budget.getName(), budget.getDescription(),
+                budget.getStartDate(), budget.getEndDate(), budget.getCreatedAt(), budget.getUpdatedAt(), budget.getVersion());
+    }
+
+    public BudgetView withCategories(List<CategoryView> categories) {
+        return new BudgetView(id, userId, name, description, startDate, endDate, createdAt, updatedAt, version, categories);
+    }
+}
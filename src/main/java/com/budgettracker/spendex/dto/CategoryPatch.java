@@ -0,0 +1,13 @@
+package com.budgettracker.spendex.dto;
+
+import jakarta.validation.constraints.Pattern;
+
+// PATCH body for a category: fields left out (or null) keep their value
+public record CategoryPatch(@Pattern(regexp = "(?s).*\\S.*", message = "Category name must not be blank") String name,
+                            @Pattern(regexp = "income|expense", message = "Type must be either 'income' or 'expense'") String type,
+                            String iconUrl) {
+
+    public boolean isEmpty() {
+        return name == null && type == null && iconUrl == null;
+    }
+}
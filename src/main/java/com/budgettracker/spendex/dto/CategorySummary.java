@@ -0,0 +1,12 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+
+public record CategorySummary(Long categoryId, String name, String type, BigDecimal total, Long transactionCount) {
+
+    public CategorySummary {
+        // SUM over no rows is null, categories without a balance row yet as well
+        total = total == null ? BigDecimal.ZERO : total;
+        transactionCount = transactionCount == null ? 0L : transactionCount;
+    }
+}
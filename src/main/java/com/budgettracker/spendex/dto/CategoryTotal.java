@@ -0,0 +1,6 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+
+public record CategoryTotal(Long categoryId, String type, BigDecimal total, long transactionCount) {
+}
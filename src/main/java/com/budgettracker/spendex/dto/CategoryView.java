@@ -0,0 +1,29 @@
+package com.budgettracker.spendex.dto;
+
+import com.budgettracker.spendex.models.Category;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// category as returned by the API; transactions are only filled in when expand asks for them
+public record CategoryView(Long id, Long budgetId, String name, String type, String iconUrl,
+                           LocalDateTime createdAt, LocalDateTime updatedAt, Long version,
+                           @JsonInclude(JsonInclude.Include.NON_NULL) List<TransactionView> transactions) {
+
+    // used by the JPQL constructor expressions
+    public CategoryView(Long id, Long budgetId, String name, String type, String iconUrl,
+                        LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        this(id, budgetId, name, type, iconUrl, createdAt, updatedAt, version, null);
+    }
+
+    public static CategoryView from(Category category) {
+        return new CategoryView(category.getId(), category.getBudget().getId(), category.getName(),
+                category.getType(), category.getIconUrl(), category.getCreatedAt(), category.getUpdatedAt(),
+                category.getVersion());
+    }
+
+    public CategoryView withTransactions(List<TransactionView> transactions) {
+        return new CategoryView(id, budgetId, name, type, iconUrl, createdAt, updatedAt, version, transactions);
+    }
+}
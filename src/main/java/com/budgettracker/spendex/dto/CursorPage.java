@@ -0,0 +1,7 @@
+package com.budgettracker.spendex.dto;
+
+import java.util.List;
+
+// one page of a keyset listing; nextCursor is null on the last page
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,28 @@
+package com.budgettracker.spendex.dto;
+
+import java.util.Collection;
+import java.util.Locale;
+
+// nested levels a response should include, parsed from ?expand=categories,transactions
+public record Expansion(boolean categories, boolean transactions) {
+
+    public static final Expansion NONE = new Expansion(false, false);
+
+    public static Expansion parse(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return NONE;
+        }
+        boolean categories = false;
+        boolean transactions = false;
+        for (String value : values) {
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "" -> { }
+                case "categories" -> categories = true;
+                case "transactions" -> transactions = true;
+                default -> throw new IllegalArgumentException("Unknown expand value: " + value);
+            }
+        }
+        // transactions hang off categories, so asking for them implies the categories too
+        return new Expansion(categories || transactions, transactions);
+    }
+}
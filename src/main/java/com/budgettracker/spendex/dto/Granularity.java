@@ -0,0 +1,15 @@
+package com.budgettracker.spendex.dto;
+
+public enum Granularity {
+    DAY,
+    MONTH;
+
+    public static Granularity from(String value) {
+        for (Granularity granularity : values()) {
+            if (granularity.name().equalsIgnoreCase(value)) {
+                return granularity;
+            }
+        }
+        throw new IllegalArgumentException("Granularity must be either 'day' or 'month'");
+    }
+}
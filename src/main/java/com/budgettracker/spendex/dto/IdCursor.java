@@ -0,0 +1,20 @@
+package com.budgettracker.spendex.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// position after the last returned row of a listing in id order, sent to clients as an opaque string
+public record IdCursor(Long id) {
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static IdCursor decode(String cursor) {
+        try {
+            return new IdCursor(Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.budgettracker.spendex.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class ImportStatus {
+    private String id;
+    private String state; // QUEUED, RUNNING, COMPLETED, FAILED
+    private long processedRows;
+    private long importedRows;
+    private long rejectedRows;
+    // file line (header = 1) up to which every row is imported or listed in errors; chunks commit on their own,
+    // so a FAILED import keeps those rows and is resumed with the lines after this one
+    private long lastCommittedLine;
+    private List<String> errors;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,5 @@
+package com.budgettracker.spendex.dto;
+
+// id of a category or budget together with the id of the user owning it
+public record OwnerRef(Long id, Long ownerId) {
+}
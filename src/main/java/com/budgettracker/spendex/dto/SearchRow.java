@@ -0,0 +1,7 @@
+package com.budgettracker.spendex.dto;
+
+import java.time.LocalDate;
+
+// what the search index keeps per transaction
+public record SearchRow(Long id, LocalDate date, String description) {
+}
@@ -0,0 +1,21 @@
+package com.budgettracker.spendex.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SpendingAnalytics {
+    private LocalDate from;
+    private LocalDate to;
+    private BigDecimal totalIncome;
+    private BigDecimal totalExpense;
+    private long transactionCount;
+    private List<CategoryTotal> categories; // only with breakdown=true, categories with matching transactions
+}
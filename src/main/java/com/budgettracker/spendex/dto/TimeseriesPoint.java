@@ -0,0 +1,9 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// period is the day, or the first day of the month for monthly series
+public record TimeseriesPoint(LocalDate period, Long categoryId, String categoryName, String type,
+                              BigDecimal total, long transactionCount) {
+}
@@ -0,0 +1,17 @@
+package com.budgettracker.spendex.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class TransactionBatchOperation {
+    private String op; // create, update, delete
+    private Long id; // update, delete
+    private Long categoryId; // create
+    private Long version; // update, delete: optional, the version that was read (like If-Match)
+    private String description;
+    private BigDecimal amount;
+    private LocalDate date;
+}
@@ -0,0 +1,14 @@
+package com.budgettracker.spendex.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TransactionBatchResult {
+    private int index;
+    private String op;
+    private int status; // same code the single-item endpoint would have answered with
+    private Long id;
+    private String error;
+}
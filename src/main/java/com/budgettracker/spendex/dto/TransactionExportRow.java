@@ -0,0 +1,9 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// flat, unmanaged row used by the export, built directly by a JPQL constructor expression
+public record TransactionExportRow(Long id, LocalDate date, BigDecimal amount, String description,
+                                   Long categoryId, String categoryName, String categoryType) {
+}
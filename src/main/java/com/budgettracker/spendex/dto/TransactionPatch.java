@@ -0,0 +1,17 @@
+package com.budgettracker.spendex.dto;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// PATCH body for a transaction: fields left out (or null) keep their value
+public record TransactionPatch(@Pattern(regexp = "(?s).*\\S.*", message = "Description must not be blank") String description,
+                               @Positive(message = "Amount must be positive") BigDecimal amount,
+                               LocalDate date) {
+
+    public boolean isEmpty() {
+        return description == null && amount == null && date == null;
+    }
+}
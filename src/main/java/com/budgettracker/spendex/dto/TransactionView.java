@@ -0,0 +1,10 @@
+package com.budgettracker.spendex.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// transaction as returned by the list endpoints; version is what If-Match expects
+public record TransactionView(Long id, Long categoryId, String description, BigDecimal amount, LocalDate date,
+                              LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+}
@@ -0,0 +1,16 @@
+package com.budgettracker.spendex.dto;
+
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+
+import java.time.LocalDateTime;
+
+// user as returned by the API, without the password hash and token version
+public record UserView(Long id, String firstName, String lastName, String email, Role role, boolean enabled,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static UserView from(User user) {
+        return new UserView(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(), user.getRole(),
+                user.isEnabled(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+}
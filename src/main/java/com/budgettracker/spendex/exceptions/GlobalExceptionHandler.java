@@ -1,5 +1,7 @@
 package com.budgettracker.spendex.exceptions;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -91,6 +93,44 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    // 409 - the row was changed by someone else between this request's read and its write
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLock(OptimisticLockingFailureException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", "Conflict");
+        body.put("details", "The resource was modified concurrently, read it again and retry");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // 412 - If-Match names a version that is no longer current
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(PreconditionFailedException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", "Precondition Failed");
+        body.put("details", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(body);
+    }
+
+    // 428 - writes without If-Match while spendex.concurrency.require-if-match is on
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionRequired(PreconditionRequiredException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", "Precondition Required");
+        body.put("details", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body(body);
+    }
+
+    // 429 - password hashing pool is saturated
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, String>> handleTooManyRequests(TooManyRequestsException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", "Too Many Requests");
+        body.put("details", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<Map<String, String>> handleBadCredentials(BadCredentialsException ex) {
         Map<String, String> body = new HashMap<>();
@@ -0,0 +1,7 @@
+package com.budgettracker.spendex.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
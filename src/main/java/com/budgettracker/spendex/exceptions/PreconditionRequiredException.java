@@ -0,0 +1,7 @@
+package com.budgettracker.spendex.exceptions;
+
+public class PreconditionRequiredException extends RuntimeException {
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
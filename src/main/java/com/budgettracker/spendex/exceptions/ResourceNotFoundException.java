@@ -5,4 +5,8 @@ public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException(String resource, Long id) {
         super(resource + " with id " + id + " not found");
     }
+
+    public ResourceNotFoundException(String resource, String id) {
+        super(resource + " with id " + id + " not found");
+    }
 }
@@ -0,0 +1,7 @@
+package com.budgettracker.spendex.exceptions;
+
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -1,11 +1,16 @@
 package com.budgettracker.spendex.models;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 
 import java.time.LocalDate;
@@ -14,6 +19,10 @@ import java.util.List;
 
 @Entity
 @Data
+@DynamicUpdate
+@Table(indexes = @Index(name = "idx_budget_user", columnList = "user_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "budget")
 public class Budget {
 
     @Id
@@ -38,6 +47,13 @@ public class Budget {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // bumped by every update, which only succeeds while the row still has the version that was read;
+    // clients send it back in If-Match. Updates write only the changed columns (@DynamicUpdate)
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @PrePersist
     public void onCreate() {
         createdAt = LocalDateTime.now();
@@ -54,7 +70,10 @@ public class Budget {
     @JoinColumn(name = "user_id")
     private User user;
 
+    // lazy loads of several budgets' categories (e.g. cascading deletes) go in batches instead of one query each
     @OneToMany(mappedBy = "budget", cascade = CascadeType.ALL)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "budget-categories")
     @JsonManagedReference
     private List<Category> categories;
 
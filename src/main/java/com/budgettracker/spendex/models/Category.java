@@ -2,18 +2,27 @@ package com.budgettracker.spendex.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Data
+@DynamicUpdate
+@Table(indexes = @Index(name = "idx_category_budget", columnList = "budget_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 public class Category {
 
     @Id
@@ -34,6 +43,11 @@ public class Category {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @PrePersist
     public void onCreate() {
         createdAt = LocalDateTime.now();
@@ -52,6 +66,7 @@ public class Category {
     private Budget budget;
 
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL)
+    @BatchSize(size = 50)
     @JsonManagedReference
     private List<Transaction> transactions;
 
@@ -0,0 +1,41 @@
+package com.budgettracker.spendex.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// running totals of a category, kept in step with its transactions by BalanceService
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "category_balance", indexes = {
+        @Index(name = "idx_category_balance_budget", columnList = "budget_id")
+})
+public class CategoryBalance {
+
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "budget_id", nullable = false)
+    private Long budgetId;
+
+    private String type; // copy of Category.type
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private long transactionCount;
+
+    public CategoryBalance(Long categoryId, Long budgetId, String type, BigDecimal total, Long transactionCount) {
+        this.categoryId = categoryId;
+        this.budgetId = budgetId;
+        this.type = type;
+        // SUM over no rows is null
+        this.total = total == null ? BigDecimal.ZERO : total;
+        this.transactionCount = transactionCount == null ? 0 : transactionCount;
+    }
+}
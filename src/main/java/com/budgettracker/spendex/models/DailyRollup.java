@@ -0,0 +1,34 @@
+package com.budgettracker.spendex.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// transaction totals per user, category and day (Transaction.date), kept in step by RollupService
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "rollup_daily", indexes = {
+        @Index(name = "idx_rollup_daily_user_period", columnList = "user_id, period_start"),
+        @Index(name = "idx_rollup_daily_category", columnList = "category_id")
+})
+public class DailyRollup {
+
+    @EmbeddedId
+    private RollupKey id;
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private long transactionCount;
+
+    public DailyRollup(Long userId, Long categoryId, LocalDate periodStart, BigDecimal total, Long transactionCount) {
+        this.id = new RollupKey(userId, categoryId, periodStart);
+        this.total = total;
+        this.transactionCount = transactionCount;
+    }
+}
@@ -0,0 +1,27 @@
+package com.budgettracker.spendex.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// (user, category, first day of the period) - shared by the daily and monthly rollups
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupKey implements Serializable {
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+}
@@ -1,6 +1,7 @@
 package com.budgettracker.spendex.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -8,6 +9,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -15,10 +17,17 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
+@DynamicUpdate
+@Table(indexes = {
+        @Index(name = "idx_transaction_category_date", columnList = "category_id, date, id"),
+        @Index(name = "idx_transaction_date_id", columnList = "date, id")
+})
 public class Transaction {
 
+    // pooled sequence instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Description is required")
@@ -37,6 +46,11 @@ public class Transaction {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @PrePersist
     public void onCreate() {
         createdAt = LocalDateTime.now();
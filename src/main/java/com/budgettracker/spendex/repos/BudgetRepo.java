@@ -1,14 +1,79 @@
 package com.budgettracker.spendex.repos;
 
+import com.budgettracker.spendex.dto.BudgetView;
 import com.budgettracker.spendex.models.Budget;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import com.budgettracker.spendex.models.User;
 
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BudgetRepo extends JpaRepository<Budget,Long> {
-    List<Budget> findByUser(User user);
+    // one statement with the user; the Owned variant returns nothing for other users' budgets.
+    // Cacheable: served from the query cache when spendex.cache.second-level is enabled
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT b FROM Budget b JOIN FETCH b.user WHERE b.id = :id")
+    Optional<Budget> findWithOwnerById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT b FROM Budget b JOIN FETCH b.user u WHERE b.id = :id AND u.id = :userId")
+    Optional<Budget> findOwnedById(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT b.user.id FROM Budget b WHERE b.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    // budget tree: owner and categories in one statement, the transactions come from TransactionRepo.findTreeViews
+    @Query("SELECT b FROM Budget b JOIN FETCH b.user LEFT JOIN FETCH b.categories WHERE b.id = :id")
+    Optional<Budget> findTreeWithOwnerById(@Param("id") Long id);
+
+    @Query("SELECT b FROM Budget b JOIN FETCH b.user u LEFT JOIN FETCH b.categories " +
+            "WHERE b.id = :id AND u.id = :userId")
+    Optional<Budget> findOwnedTreeById(@Param("id") Long id, @Param("userId") Long userId);
+
+    // list views straight from the budget table, no entity graph behind them
+    @Query("SELECT new com.budgettracker.spendex.dto.BudgetView(b.id, b.user.id, b.name, b.description, " +
+            "b.startDate, b.endDate, b.createdAt, b.updatedAt, b.version) FROM Budget b WHERE b.user.id = :userId ORDER BY b.id")
+    List<BudgetView> findViewsByUserId(@Param("userId") Long userId);
+
+    // admin listing in id order; a null userId matches every owner
+    @Query("SELECT new com.budgettracker.spendex.dto.BudgetView(b.id, b.user.id, b.name, b.description, " +
+            "b.startDate, b.endDate, b.createdAt, b.updatedAt, b.version) FROM Budget b " +
+            "WHERE b.id > :afterId AND (:userId IS NULL OR b.user.id = :userId) ORDER BY b.id")
+    List<BudgetView> findViewPage(@Param("afterId") Long afterId, @Param("userId") Long userId, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.BudgetView(b.id, b.user.id, b.name, b.description, " +
+            "b.startDate, b.endDate, b.createdAt, b.updatedAt, b.version) FROM Budget b " +
+            "WHERE :userId IS NULL OR b.user.id = :userId ORDER BY b.id")
+    Stream<BudgetView> streamViews(@Param("userId") Long userId);
+
+    // taken before a budget is swept, the current version comes back with it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.version FROM Budget b WHERE b.id = :id")
+    Optional<Long> lockVersionById(@Param("id") Long id);
+
+    // category creation holds this until commit, so no category is added while its budget is being swept
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT b.id FROM Budget b WHERE b.id = :id")
+    Optional<Long> lockSharedById(@Param("id") Long id);
+
+    // 0 when the row is gone or its version has moved on since it was read
+    @Modifying
+    @Query("DELETE FROM Budget b WHERE b.id = :id AND b.version = :version")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
 }
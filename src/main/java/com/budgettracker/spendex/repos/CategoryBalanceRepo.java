@@ -0,0 +1,57 @@
+package com.budgettracker.spendex.repos;
+
+import com.budgettracker.spendex.dto.BudgetTypeTotal;
+import com.budgettracker.spendex.dto.CategorySummary;
+import com.budgettracker.spendex.models.CategoryBalance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CategoryBalanceRepo extends JpaRepository<CategoryBalance, Long> {
+
+    // single UPDATE, the row lock also serializes concurrent writers of the same category
+    @Modifying
+    @Query("UPDATE CategoryBalance b " +
+            "SET b.total = b.total + :amount, b.transactionCount = b.transactionCount + :count " +
+            "WHERE b.categoryId = :categoryId")
+    int adjust(@Param("categoryId") Long categoryId, @Param("amount") BigDecimal amount, @Param("count") long count);
+
+    @Modifying
+    @Query("UPDATE CategoryBalance b SET b.type = :type WHERE b.categoryId = :categoryId")
+    int updateType(@Param("categoryId") Long categoryId, @Param("type") String type);
+
+    @Modifying
+    @Query("DELETE FROM CategoryBalance b WHERE b.categoryId = :categoryId")
+    int deleteByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Modifying
+    @Query("DELETE FROM CategoryBalance b WHERE b.budgetId = :budgetId")
+    int deleteByBudgetId(@Param("budgetId") Long budgetId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM CategoryBalance b WHERE b.categoryId IN :categoryIds ORDER BY b.categoryId")
+    List<CategoryBalance> lockByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    // O(categories) reads for the summaries
+    @Query("SELECT new com.budgettracker.spendex.dto.CategorySummary(c.id, c.name, c.type, b.total, b.transactionCount) " +
+            "FROM Category c LEFT JOIN CategoryBalance b ON b.categoryId = c.id " +
+            "WHERE c.budget.id = :budgetId " +
+            "ORDER BY c.name")
+    List<CategorySummary> summarizeByBudgetId(@Param("budgetId") Long budgetId);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.BudgetTypeTotal(bu.id, bu.name, b.type, SUM(b.total)) " +
+            "FROM Budget bu LEFT JOIN CategoryBalance b ON b.budgetId = bu.id " +
+            "WHERE bu.user.id = :userId " +
+            "GROUP BY bu.id, bu.name, b.type " +
+            "ORDER BY bu.id")
+    List<BudgetTypeTotal> summarizeByUserId(@Param("userId") Long userId);
+}
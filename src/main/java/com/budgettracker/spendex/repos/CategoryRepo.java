@@ -1,12 +1,92 @@
 package com.budgettracker.spendex.repos;
 
-import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.dto.CategoryView;
+import com.budgettracker.spendex.dto.OwnerRef;
 import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.CategoryBalance;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CategoryRepo extends JpaRepository<Category,Long> {
 
-    List<Category> findByBudget(Budget budget);
+    // one statement with the budget and its user; the Owned variant returns nothing for other users' categories.
+    // Cacheable: served from the query cache when spendex.cache.second-level is enabled
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT c FROM Category c JOIN FETCH c.budget b JOIN FETCH b.user WHERE c.id = :id")
+    Optional<Category> findWithOwnerById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT c FROM Category c JOIN FETCH c.budget b JOIN FETCH b.user u " +
+            "WHERE c.id = :id AND u.id = :userId")
+    Optional<Category> findOwnedById(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT c.budget.user.id FROM Category c WHERE c.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.OwnerRef(c.id, c.budget.user.id) " +
+            "FROM Category c WHERE c.id IN :ids")
+    List<OwnerRef> findOwnersByIdIn(@Param("ids") Collection<Long> ids);
+
+    // recomputed from scratch for the balance rebuild, unmanaged CategoryBalance instances
+    @Query("SELECT new com.budgettracker.spendex.models.CategoryBalance(c.id, c.budget.id, c.type, SUM(t.amount), COUNT(t.id)) " +
+            "FROM Category c LEFT JOIN c.transactions t " +
+            "WHERE c.id IN :ids " +
+            "GROUP BY c.id, c.budget.id, c.type")
+    List<CategoryBalance> computeBalances(@Param("ids") Collection<Long> ids);
+
+    // serializes the first writers of categories that have no balance row yet
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Category c WHERE c.id IN :ids ORDER BY c.id")
+    List<Category> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c.id FROM Category c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.CategoryView(c.id, c.budget.id, c.name, c.type, c.iconUrl, " +
+            "c.createdAt, c.updatedAt, c.version) FROM Category c WHERE c.budget.id IN :budgetIds ORDER BY c.budget.id, c.id")
+    List<CategoryView> findViewsByBudgetIdIn(@Param("budgetIds") Collection<Long> budgetIds);
+
+    // admin listing in id order; null filters match everything
+    @Query("SELECT new com.budgettracker.spendex.dto.CategoryView(c.id, c.budget.id, c.name, c.type, c.iconUrl, " +
+            "c.createdAt, c.updatedAt, c.version) FROM Category c " +
+            "WHERE c.id > :afterId AND (:userId IS NULL OR c.budget.user.id = :userId) " +
+            "AND (:budgetId IS NULL OR c.budget.id = :budgetId) ORDER BY c.id")
+    List<CategoryView> findViewPage(@Param("afterId") Long afterId, @Param("userId") Long userId,
+                                    @Param("budgetId") Long budgetId, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.CategoryView(c.id, c.budget.id, c.name, c.type, c.iconUrl, " +
+            "c.createdAt, c.updatedAt, c.version) FROM Category c " +
+            "WHERE (:userId IS NULL OR c.budget.user.id = :userId) AND (:budgetId IS NULL OR c.budget.id = :budgetId) " +
+            "ORDER BY c.id")
+    Stream<CategoryView> streamViews(@Param("userId") Long userId, @Param("budgetId") Long budgetId);
+
+    @Query("SELECT c.id FROM Category c WHERE c.budget.id = :budgetId")
+    List<Long> findIdsByBudgetId(@Param("budgetId") Long budgetId);
+
+    // set-based deletes, the rows are never loaded; Hibernate evicts the affected second-level cache regions
+    @Modifying
+    @Query("DELETE FROM Category c WHERE c.budget.id = :budgetId")
+    int deleteByBudgetId(@Param("budgetId") Long budgetId);
+
+    // 0 when the row is gone or its version has moved on since it was read
+    @Modifying
+    @Query("DELETE FROM Category c WHERE c.id = :id AND c.version = :version")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
 }
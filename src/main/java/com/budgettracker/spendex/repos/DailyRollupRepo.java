@@ -0,0 +1,45 @@
+package com.budgettracker.spendex.repos;
+
+import com.budgettracker.spendex.dto.TimeseriesPoint;
+import com.budgettracker.spendex.models.DailyRollup;
+import com.budgettracker.spendex.models.RollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyRollupRepo extends JpaRepository<DailyRollup, RollupKey> {
+
+    @Modifying
+    @Query("UPDATE DailyRollup r " +
+            "SET r.total = r.total + :amount, r.transactionCount = r.transactionCount + :count " +
+            "WHERE r.id.userId = :userId AND r.id.categoryId = :categoryId AND r.id.periodStart = :periodStart")
+    int adjust(@Param("userId") Long userId, @Param("categoryId") Long categoryId,
+               @Param("periodStart") LocalDate periodStart, @Param("amount") BigDecimal amount, @Param("count") long count);
+
+    @Modifying
+    @Query("DELETE FROM DailyRollup r WHERE r.id.categoryId IN :categoryIds")
+    int deleteByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    @Modifying
+    @Query("DELETE FROM DailyRollup r " +
+            "WHERE r.id.categoryId IN (SELECT c.id FROM Category c WHERE c.budget.id = :budgetId)")
+    int deleteByBudgetId(@Param("budgetId") Long budgetId);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.TimeseriesPoint(r.id.periodStart, c.id, c.name, c.type, r.total, r.transactionCount) " +
+            "FROM DailyRollup r JOIN Category c ON c.id = r.id.categoryId " +
+            "WHERE r.id.userId = :userId AND r.id.periodStart BETWEEN :from AND :to " +
+            "AND (:budgetId IS NULL OR c.budget.id = :budgetId) " +
+            "AND (:categoryId IS NULL OR c.id = :categoryId) " +
+            "AND r.transactionCount > 0 " +
+            "ORDER BY r.id.periodStart, c.id")
+    List<TimeseriesPoint> findSeries(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                     @Param("budgetId") Long budgetId, @Param("categoryId") Long categoryId);
+}
@@ -0,0 +1,53 @@
+package com.budgettracker.spendex.repos;
+
+import com.budgettracker.spendex.models.RefreshToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RefreshTokenRepo extends JpaRepository<RefreshToken, String> {
+
+    // 1 = this caller consumed the token, 0 = unknown or already used
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.id = :id AND r.revoked = false")
+    int markUsed(@Param("id") String id);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.family = :family")
+    List<String> findIdsByFamily(@Param("family") String family);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.family = :family")
+    int revokeFamily(@Param("family") String family);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.userId = :userId")
+    List<String> findIdsByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.userId = :userId")
+    int revokeAllForUser(@Param("userId") Long userId);
+
+    @Query("SELECT DISTINCT r.family FROM RefreshToken r WHERE r.userId = :userId")
+    List<String> findFamiliesByUserId(@Param("userId") Long userId);
+
+    // families without a usable token left: revoked as a whole, not just rotated
+    @Query("SELECT r.family FROM RefreshToken r GROUP BY r.family " +
+            "HAVING SUM(CASE WHEN r.revoked = false THEN 1 ELSE 0 END) = 0")
+    List<String> findRevokedFamilies();
+
+    @Query("SELECT DISTINCT r.family FROM RefreshToken r WHERE r.family IN :families")
+    List<String> findExistingFamilies(@Param("families") Collection<String> families);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.revoked = true AND r.expiresAt > :now")
+    List<String> findRevokedIds(@Param("now") Instant now);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.expiresAt <= :now")
+    List<String> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+}
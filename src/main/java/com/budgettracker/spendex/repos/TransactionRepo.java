@@ -1,19 +1,164 @@
 package com.budgettracker.spendex.repos;
 
+import com.budgettracker.spendex.dto.AnalyticsRow;
+import com.budgettracker.spendex.dto.SearchRow;
+import com.budgettracker.spendex.dto.TransactionExportRow;
+import com.budgettracker.spendex.dto.TransactionView;
 import com.budgettracker.spendex.models.*;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepo extends JpaRepository<Transaction,Long> {
 
-    List<Transaction> findByCategory(Category category);
-
     @Query("SELECT t FROM Transaction t " +
             "WHERE t.category.budget.user = :user")
     List<Transaction> findByUser(@Param("user") User user);
+
+    // one statement with the whole ownership chain; the Owned variants return nothing for other users' rows
+    @Query("SELECT t FROM Transaction t " +
+            "JOIN FETCH t.category c JOIN FETCH c.budget b JOIN FETCH b.user " +
+            "WHERE t.id = :id")
+    Optional<Transaction> findWithOwnerById(@Param("id") Long id);
+
+    @Query("SELECT t FROM Transaction t " +
+            "JOIN FETCH t.category c JOIN FETCH c.budget b JOIN FETCH b.user u " +
+            "WHERE t.id = :id AND u.id = :userId")
+    Optional<Transaction> findOwnedById(@Param("id") Long id, @Param("userId") Long userId);
+
+    // loads transactions with everything needed for the ownership check in one statement
+    @Query("SELECT t FROM Transaction t " +
+            "JOIN FETCH t.category c JOIN FETCH c.budget b JOIN FETCH b.user " +
+            "WHERE t.id IN :ids")
+    List<Transaction> findAllWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
+
+    // list views, newest first; the IN variant feeds expanded category trees
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t WHERE t.category.id = :categoryId " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionView> findViewsByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t WHERE t.category.id IN :categoryIds " +
+            "ORDER BY t.category.id, t.date DESC, t.id DESC")
+    List<TransactionView> findViewsByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    // admin listing as keyset pages in (date desc, id desc) order; null filters match everything
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t " +
+            "WHERE (:userId IS NULL OR t.category.budget.user.id = :userId) " +
+            "AND (:from IS NULL OR t.date >= :from) AND (:to IS NULL OR t.date <= :to) " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionView> findViewPage(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to, Limit limit);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t " +
+            "WHERE (:userId IS NULL OR t.category.budget.user.id = :userId) " +
+            "AND (:from IS NULL OR t.date >= :from) AND (:to IS NULL OR t.date <= :to) " +
+            "AND (t.date < :date OR (t.date = :date AND t.id < :id)) " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionView> findViewPageAfter(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to, @Param("date") LocalDate date,
+                                            @Param("id") Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t " +
+            "WHERE (:userId IS NULL OR t.category.budget.user.id = :userId) " +
+            "AND (:from IS NULL OR t.date >= :from) AND (:to IS NULL OR t.date <= :to) " +
+            "ORDER BY t.date, t.id")
+    Stream<TransactionView> streamViews(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                        @Param("to") LocalDate to);
+
+    // every transaction of a budget tree in one statement, optionally limited to [from, to]
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t WHERE t.category.budget.id = :budgetId " +
+            "AND (:from IS NULL OR t.date >= :from) AND (:to IS NULL OR t.date <= :to) " +
+            "ORDER BY t.category.id, t.date DESC, t.id DESC")
+    List<TransactionView> findTreeViews(@Param("budgetId") Long budgetId, @Param("from") LocalDate from,
+                                        @Param("to") LocalDate to);
+
+    // keyset pages of a category in (date desc, id desc) order, the "after" variant continues from a cursor
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t WHERE t.category.id = :categoryId " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionView> findViewPageByCategoryId(@Param("categoryId") Long categoryId, Limit limit);
+
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t WHERE t.category.id = :categoryId " +
+            "AND (t.date < :date OR (t.date = :date AND t.id < :id)) " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionView> findViewPageByCategoryIdAfter(@Param("categoryId") Long categoryId,
+                                                        @Param("date") LocalDate date, @Param("id") Long id,
+                                                        Limit limit);
+
+    // search hits, in no particular order
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionView(t.id, t.category.id, t.description, t.amount, " +
+            "t.date, t.createdAt, t.updatedAt, t.version) FROM Transaction t WHERE t.id IN :ids")
+    List<TransactionView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // export - must be consumed inside a read-only transaction, rows are fetched from the cursor in batches
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.TransactionExportRow(" +
+            "t.id, t.date, t.amount, t.description, c.id, c.name, c.type) " +
+            "FROM Transaction t JOIN t.category c " +
+            "WHERE c.budget.user.id = :userId " +
+            "ORDER BY t.date, t.id")
+    Stream<TransactionExportRow> streamExportRowsByUserId(@Param("userId") Long userId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.AnalyticsRow(t.date, t.amount, c.id, c.type) " +
+            "FROM Transaction t JOIN t.category c " +
+            "WHERE c.budget.user.id = :userId " +
+            "ORDER BY t.date, t.id")
+    Stream<AnalyticsRow> streamAnalyticsRowsByUserId(@Param("userId") Long userId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.SearchRow(t.id, t.date, t.description) " +
+            "FROM Transaction t JOIN t.category c " +
+            "WHERE c.budget.user.id = :userId")
+    Stream<SearchRow> streamSearchRowsByUserId(@Param("userId") Long userId);
+
+    // rollup back-fill, recomputed from scratch for a chunk of categories
+    @Query("SELECT new com.budgettracker.spendex.models.DailyRollup(b.user.id, c.id, t.date, SUM(t.amount), COUNT(t.id)) " +
+            "FROM Transaction t JOIN t.category c JOIN c.budget b " +
+            "WHERE c.id IN :categoryIds " +
+            "GROUP BY b.user.id, c.id, t.date")
+    List<DailyRollup> rollupDaily(@Param("categoryIds") Collection<Long> categoryIds);
+
+    // set-based deletes for removing a category or a whole budget, the rows are never loaded
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.category.id = :categoryId")
+    int deleteByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t " +
+            "WHERE t.category.id IN (SELECT c.id FROM Category c WHERE c.budget.id = :budgetId)")
+    int deleteByBudgetId(@Param("budgetId") Long budgetId);
 }
@@ -1,15 +1,45 @@
 package com.budgettracker.spendex.repos;
 
+import com.budgettracker.spendex.dto.UserView;
 import com.budgettracker.spendex.models.Role;
 import com.budgettracker.spendex.models.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepo extends JpaRepository<User,Long> {
 
     Optional<User> findByEmail(String email);
     Optional<User> findByRole(Role role);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
+
+    // admin listing in id order, never selects the password hash; null filters match everything
+    @Query("SELECT new com.budgettracker.spendex.dto.UserView(u.id, u.firstName, u.lastName, u.email, u.role, " +
+            "u.enabled, u.createdAt, u.updatedAt) FROM User u " +
+            "WHERE u.id > :afterId AND (:role IS NULL OR u.role = :role) AND (:enabled IS NULL OR u.enabled = :enabled) " +
+            "ORDER BY u.id")
+    List<UserView> findViewPage(@Param("afterId") Long afterId, @Param("role") Role role,
+                                @Param("enabled") Boolean enabled, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.budgettracker.spendex.dto.UserView(u.id, u.firstName, u.lastName, u.email, u.role, " +
+            "u.enabled, u.createdAt, u.updatedAt) FROM User u " +
+            "WHERE (:role IS NULL OR u.role = :role) AND (:enabled IS NULL OR u.enabled = :enabled) " +
+            "ORDER BY u.id")
+    Stream<UserView> streamViews(@Param("role") Role role, @Param("enabled") Boolean enabled);
 }
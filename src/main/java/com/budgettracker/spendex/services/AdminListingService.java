@@ -0,0 +1,192 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.BudgetView;
+import com.budgettracker.spendex.dto.CategoryView;
+import com.budgettracker.spendex.dto.CursorPage;
+import com.budgettracker.spendex.dto.ExportFormat;
+import com.budgettracker.spendex.dto.IdCursor;
+import com.budgettracker.spendex.dto.TransactionCursor;
+import com.budgettracker.spendex.dto.TransactionView;
+import com.budgettracker.spendex.dto.UserView;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.util.Csv;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// admin-wide listings: keyset pages capped at max-page-size, and exports streamed straight from the database
+@Service
+@Transactional(readOnly = true)
+public class AdminListingService {
+
+    private final UserRepo userRepo;
+    private final BudgetRepo budgetRepo;
+    private final CategoryRepo categoryRepo;
+    private final TransactionRepo transactionRepo;
+    private final ObjectMapper objectMapper;
+
+    @Value("${spendex.pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${spendex.pagination.max-page-size:200}")
+    private int maxPageSize;
+
+    public AdminListingService(UserRepo userRepo, BudgetRepo budgetRepo, CategoryRepo categoryRepo,
+                               TransactionRepo transactionRepo, ObjectMapper objectMapper) {
+        this.userRepo = userRepo;
+        this.budgetRepo = budgetRepo;
+        this.categoryRepo = categoryRepo;
+        this.transactionRepo = transactionRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    public CursorPage<UserView> getUsers(String cursor, Integer size, Role role, Boolean enabled) {
+        int pageSize = pageSize(size);
+        List<UserView> rows = userRepo.findViewPage(afterId(cursor), role, enabled, Limit.of(pageSize + 1));
+        return toIdPage(rows, pageSize, UserView::id);
+    }
+
+    public CursorPage<BudgetView> getBudgets(String cursor, Integer size, Long userId) {
+        int pageSize = pageSize(size);
+        List<BudgetView> rows = budgetRepo.findViewPage(afterId(cursor), userId, Limit.of(pageSize + 1));
+        return toIdPage(rows, pageSize, BudgetView::id);
+    }
+
+    public CursorPage<CategoryView> getCategories(String cursor, Integer size, Long userId, Long budgetId) {
+        int pageSize = pageSize(size);
+        List<CategoryView> rows = categoryRepo.findViewPage(afterId(cursor), userId, budgetId, Limit.of(pageSize + 1));
+        return toIdPage(rows, pageSize, CategoryView::id);
+    }
+
+    // newest first, from and to (inclusive) are optional
+    public CursorPage<TransactionView> getTransactions(String cursor, Integer size, Long userId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        int pageSize = pageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<TransactionView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionRepo.findViewPage(userId, from, to, limit);
+        } else {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            rows = transactionRepo.findViewPageAfter(userId, from, to, after.date(), after.id(), limit);
+        }
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<TransactionView> items = rows.subList(0, pageSize);
+        TransactionView last = items.get(pageSize - 1);
+        return new CursorPage<>(items, new TransactionCursor(last.date(), last.id()).encode());
+    }
+
+    // exports hold one fetch of rows at a time, however big the table is
+
+    public void exportUsers(ExportFormat format, Role role, Boolean enabled, OutputStream out) throws IOException {
+        try (Stream<UserView> rows = userRepo.streamViews(role, enabled)) {
+            export(rows, format, "id,first_name,last_name,email,role,enabled,created_at,updated_at", user -> Arrays.asList(
+                    user.id(), user.firstName(), user.lastName(), user.email(), user.role(), user.enabled(),
+                    user.createdAt(), user.updatedAt()), out);
+        }
+    }
+
+    public void exportBudgets(ExportFormat format, Long userId, OutputStream out) throws IOException {
+        try (Stream<BudgetView> rows = budgetRepo.streamViews(userId)) {
+            export(rows, format, "id,user_id,name,description,start_date,end_date,created_at,updated_at", budget -> Arrays.asList(
+                    budget.id(), budget.userId(), budget.name(), budget.description(), budget.startDate(),
+                    budget.endDate(), budget.createdAt(), budget.updatedAt()), out);
+        }
+    }
+
+    public void exportCategories(ExportFormat format, Long userId, Long budgetId, OutputStream out) throws IOException {
+        try (Stream<CategoryView> rows = categoryRepo.streamViews(userId, budgetId)) {
+            export(rows, format, "id,budget_id,name,type,icon_url,created_at,updated_at", category -> Arrays.asList(
+                    category.id(), category.budgetId(), category.name(), category.type(),
+                    category.iconUrl(), category.createdAt(), category.updatedAt()), out);
+        }
+    }
+
+    // oldest first, like the per-user export
+    public void exportTransactions(ExportFormat format, Long userId, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        checkRange(from, to);
+        try (Stream<TransactionView> rows = transactionRepo.streamViews(userId, from, to)) {
+            export(rows, format, "id,category_id,date,amount,description,created_at,updated_at", transaction -> Arrays.asList(
+                    transaction.id(), transaction.categoryId(), transaction.date(), transaction.amount(),
+                    transaction.description(), transaction.createdAt(), transaction.updatedAt()), out);
+        }
+    }
+
+    private <T> void export(Stream<T> rows, ExportFormat format, String csvHeader, Function<T, List<Object>> csvColumns,
+                            OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(csvHeader);
+            writer.write('\n');
+        }
+        try {
+            rows.forEach(row -> {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        writer.write(csvColumns.apply(row).stream().map(Csv::escape).collect(Collectors.joining(",")));
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                    }
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private int pageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    private static long afterId(String cursor) {
+        return cursor == null || cursor.isBlank() ? 0L : IdCursor.decode(cursor).id();
+    }
+
+    // one extra row was fetched to find out whether another page exists
+    private static <T> CursorPage<T> toIdPage(List<T> rows, int pageSize, Function<T, Long> id) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, new IdCursor(id.apply(items.get(pageSize - 1))).encode());
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+    }
+}
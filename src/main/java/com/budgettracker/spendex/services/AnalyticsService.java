@@ -0,0 +1,181 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.AnalyticsRow;
+import com.budgettracker.spendex.dto.CategoryTotal;
+import com.budgettracker.spendex.dto.SpendingAnalytics;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.util.SpendingColumns;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+// per-user columnar copies of the transactions, kept in memory for interactive filtering
+@Service
+public class AnalyticsService {
+
+    private final TransactionRepo transactionRepo;
+    private final CurrentUserResolver currentUserResolver;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTemplate;
+
+    @Value("${spendex.analytics.cache-enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${spendex.analytics.max-heap:256MB}")
+    private DataSize maxHeap;
+
+    @Value("${spendex.analytics.ttl:PT30M}")
+    private Duration ttl;
+
+    private Cache<Long, SpendingColumns> columns;
+
+    public AnalyticsService(TransactionRepo transactionRepo, CurrentUserResolver currentUserResolver,
+                            MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.transactionRepo = transactionRepo;
+        this.currentUserResolver = currentUserResolver;
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void init() {
+        if (!cacheEnabled) {
+            return;
+        }
+        // least recently used users go first once the estimated heap use passes max-heap
+        columns = Caffeine.newBuilder()
+                .maximumWeight(maxHeap.toBytes())
+                .weigher((Long userId, SpendingColumns value) -> (int) Math.min(Integer.MAX_VALUE, value.estimatedBytes()))
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, columns, "analytics");
+    }
+
+    // income and expense totals of the current user between from and to (inclusive, both optional), per category;
+    // categoryIds and the amount band narrow the rows that are counted
+    public SpendingAnalytics getSpending(LocalDate from, LocalDate to, Collection<Long> categoryIds,
+                                         BigDecimal minAmount, BigDecimal maxAmount, boolean breakdown) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        User currentUser = currentUserResolver.get();
+        SpendingColumns data = columnsFor(currentUser.getId());
+
+        int fromDay = from == null ? Integer.MIN_VALUE : clampToInt(from.toEpochDay());
+        int toDay = to == null ? Integer.MAX_VALUE : clampToInt(to.toEpochDay());
+        long min = minAmount == null ? Long.MIN_VALUE : toMinorUnits(minAmount);
+        long max = maxAmount == null ? Long.MAX_VALUE : toMinorUnits(maxAmount);
+        boolean anyCategory = categoryIds == null || categoryIds.isEmpty();
+
+        if (!breakdown && anyCategory && minAmount == null && maxAmount == null) {
+            // plain range totals: binary searches over the prefix sums, no scan
+            return SpendingAnalytics.builder()
+                    .from(from)
+                    .to(to)
+                    .totalIncome(fromMinorUnits(data.incomeSum(fromDay, toDay)))
+                    .totalExpense(fromMinorUnits(data.expenseSum(fromDay, toDay)))
+                    .transactionCount(data.count(fromDay, toDay))
+                    .build();
+        }
+
+        boolean[] mask = null;
+        if (!anyCategory) {
+            mask = new boolean[data.categoryCount()];
+            for (Long categoryId : categoryIds) {
+                int index = data.categoryIndex(categoryId);
+                if (index >= 0) {
+                    mask[index] = true;
+                }
+            }
+        }
+
+        long[] totals = new long[data.categoryCount()];
+        int[] counts = new int[data.categoryCount()];
+        data.groupByCategory(fromDay, toDay, mask, min, max, totals, counts);
+
+        List<CategoryTotal> categories = breakdown ? new ArrayList<>() : null;
+        long income = 0;
+        long expense = 0;
+        long count = 0;
+        for (int i = 0; i < totals.length; i++) {
+            if (counts[i] > 0) {
+                if (breakdown) {
+                    categories.add(new CategoryTotal(data.categoryId(i), data.isIncome(i) ? "income" : "expense",
+                            fromMinorUnits(totals[i]), counts[i]));
+                }
+                if (data.isIncome(i)) {
+                    income += totals[i];
+                } else {
+                    expense += totals[i];
+                }
+                count += counts[i];
+            }
+        }
+
+        return SpendingAnalytics.builder()
+                .from(from)
+                .to(to)
+                .totalIncome(fromMinorUnits(income))
+                .totalExpense(fromMinorUnits(expense))
+                .transactionCount(count)
+                .categories(categories)
+                .build();
+    }
+
+    // called by LedgerService after commit, once a reload sees the new rows
+    public void invalidate(Collection<Long> userIds) {
+        if (columns != null) {
+            columns.invalidateAll(userIds);
+        }
+    }
+
+    private SpendingColumns columnsFor(Long userId) {
+        if (columns == null) {
+            return load(userId);
+        }
+        return columns.get(userId, this::load);
+    }
+
+    private SpendingColumns load(Long userId) {
+        return readOnlyTemplate.execute(status -> {
+            SpendingColumns.Builder builder = SpendingColumns.builder();
+            try (Stream<AnalyticsRow> rows = transactionRepo.streamAnalyticsRowsByUserId(userId)) {
+                rows.forEach(row -> builder.add(Math.toIntExact(row.date().toEpochDay()),
+                        toMinorUnits(row.amount()), row.categoryId(), "income".equals(row.type())));
+            }
+            return builder.build();
+        });
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, 2);
+    }
+
+    private static int clampToInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+}
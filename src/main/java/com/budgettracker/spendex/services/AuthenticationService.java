@@ -5,29 +5,37 @@ import com.budgettracker.spendex.dto.AuthenticationResponse;
 import com.budgettracker.spendex.dto.RegisterRequest;
 import com.budgettracker.spendex.exceptions.EmailAlreadyUsedException;
 import com.budgettracker.spendex.repos.UserRepo;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AccountStatusException;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import com.budgettracker.spendex.models.User;
 import com.budgettracker.spendex.models.Role;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class AuthenticationService {
     private final UserRepo userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PrincipalCache principalCache;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    // locked, disabled, expired and credentials-expired, as DaoAuthenticationProvider checked them
+    private final AccountStatusUserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
 
+    private volatile String unknownUserHash;
 
-    public AuthenticationService(UserRepo userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager, JwtService jwtService) {
+
+    public AuthenticationService(UserRepo userRepository, PasswordEncoder passwordEncoder, PrincipalCache principalCache, JwtService jwtService, RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.authenticationManager = authenticationManager;
+        this.principalCache = principalCache;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     // register
@@ -47,47 +55,80 @@ public class AuthenticationService {
                 .build();
         userRepository.save(user);
 
-        var jwtToken = jwtService.generateToken(user);
-        var refreshToken = jwtService.generateRefreshToken(new HashMap<>(), user);
-        return AuthenticationResponse.builder()
-                .authenticationToken(jwtToken)
-                .refreshToken(refreshToken)
-                .build();
+        return issueTokens(user, refreshTokenService.newFamily());
     }
 
     // login
     public AuthenticationResponse  authenticate(AuthenticationRequest authenticationRequest) {
-        User user = userRepository.findByEmail(authenticationRequest.getEmail())
-                .orElseThrow(() -> new BadCredentialsException("Invalid email or password"));
+        // single lookup, the password check runs on the bounded hashing pool
+        User user;
+        try {
+            user = principalCache.get(authenticationRequest.getEmail());
+        } catch (UsernameNotFoundException e) {
+            user = null;
+        }
 
+        // every attempt pays for one hash, so the response time does not tell unknown or disabled accounts apart
+        String password = authenticationRequest.getPassword();
+        boolean matches = passwordEncoder.matches(password != null ? password : "",
+                user != null ? user.getPassword() : unknownUserHash());
+        if (user == null || password == null || !matches) {
+            throw new BadCredentialsException("Invalid email or password");
+        }
         try {
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(authenticationRequest.getEmail(), authenticationRequest.getPassword()));
-        } catch (Exception e) {
+            accountStatusChecker.check(user);
+        } catch (AccountStatusException e) {
             throw new BadCredentialsException("Invalid email or password");
         }
 
-        var jwtToken = jwtService.generateToken(user);
-        var refreshToken = jwtService.generateRefreshToken(new HashMap<>(), user);
-        return AuthenticationResponse.builder()
-                .authenticationToken(jwtToken)
-                .refreshToken(refreshToken)
-                .build();
+        return issueTokens(user, refreshTokenService.newFamily());
     }
 
     public AuthenticationResponse refreshToken(String refreshToken) {
-        User user = userRepository.findByEmail(jwtService.getEmailFromToken(refreshToken))
-                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+        VerifiedToken verified = jwtService.verify(refreshToken);
 
-        var jwtToken = jwtService.generateToken(user);
-        var newRefreshToken = jwtService.generateRefreshToken(new HashMap<>(), user);
-        return AuthenticationResponse.builder()
-                .authenticationToken(jwtToken)
-                .refreshToken(newRefreshToken)
-                .build();
+        // checked before the token is consumed, rotate commits on its own
+        User user;
+        try {
+            user = principalCache.get(verified.subject());
+        } catch (UsernameNotFoundException e) {
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+        if (!user.isEnabled()) {
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+
+        String family = refreshTokenService.rotate(verified);
+        return issueTokens(user, family);
+    }
+
+    // revokes the refresh token and every token rotated from the same login
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(jwtService.verify(refreshToken));
     }
 
     public Boolean validateToken(String token) {
         return jwtService.validateToken(token);
     }
 
+    // compared against when the email is unknown, hashed once on first use
+    private String unknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(UUID.randomUUID().toString());
+            unknownUserHash = hash;
+        }
+        return hash;
+    }
+
+    // the access token names its login, so revoking the refresh-token family also shuts out its access tokens
+    private AuthenticationResponse issueTokens(User user, String family) {
+        var jwtToken = jwtService.generateToken(Map.of(JwtService.SESSION_CLAIM, family), user);
+        var refreshToken = refreshTokenService.issue(user, family);
+        return AuthenticationResponse.builder()
+                .authenticationToken(jwtToken)
+                .refreshToken(refreshToken)
+                .build();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.BalanceDrift;
+import com.budgettracker.spendex.dto.BalanceReport;
+import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
+import com.budgettracker.spendex.models.CategoryBalance;
+import com.budgettracker.spendex.repos.CategoryBalanceRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// keeps category_balance in step with transaction writes; every adjustment joins the caller's transaction
+@Service
+public class BalanceService {
+
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    private final CategoryBalanceRepo balanceRepo;
+    private final CategoryRepo categoryRepo;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${spendex.balances.rebuild-chunk-size:500}")
+    private int rebuildChunkSize;
+
+    public BalanceService(CategoryBalanceRepo balanceRepo, CategoryRepo categoryRepo, TransactionTemplate transactionTemplate) {
+        this.balanceRepo = balanceRepo;
+        this.categoryRepo = categoryRepo;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Long categoryId, BigDecimal amount, long count) {
+        if (balanceRepo.adjust(categoryId, amount, count) == 0) {
+            // category older than the balance table. A concurrent first writer holds the category row until it
+            // commits, after that its balance row is there to adjust; otherwise compute the row, the pending
+            // change is flushed first and included. No row at all: the category was deleted while we waited
+            if (categoryRepo.lockByIdIn(List.of(categoryId)).isEmpty()) {
+                throw new ResourceNotFoundException("Category", categoryId);
+            }
+            if (balanceRepo.adjust(categoryId, amount, count) == 0) {
+                balanceRepo.saveAll(categoryRepo.computeBalances(List.of(categoryId)));
+            }
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(TransactionDeltas deltas) {
+        // a date-only edit nets to zero here but still moves rollups; adjusting by zero takes the row lock
+        // that serializes their writers
+        Set<Long> rollupCategories = new HashSet<>();
+        deltas.days().forEach((day, change) -> {
+            if (!change.isZero()) {
+                rollupCategories.add(day.categoryId());
+            }
+        });
+        deltas.categories().forEach((categoryId, change) -> {
+            if (!change.isZero() || rollupCategories.contains(categoryId)) {
+                apply(categoryId, change.amount(), change.count());
+            }
+        });
+    }
+
+    // locks the rows of these categories, creating missing ones, so no transaction write touches them until commit
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lock(Collection<Long> categoryIds) {
+        List<CategoryBalance> locked = balanceRepo.lockByCategoryIdIn(categoryIds);
+        if (locked.size() < categoryIds.size()) {
+            Set<Long> missing = new HashSet<>(categoryIds);
+            locked.forEach(balance -> missing.remove(balance.getCategoryId()));
+            // as in apply: wait out concurrent first writers, then create only what is still missing
+            categoryRepo.lockByIdIn(missing);
+            balanceRepo.lockByCategoryIdIn(missing).forEach(balance -> missing.remove(balance.getCategoryId()));
+            if (!missing.isEmpty()) {
+                balanceRepo.saveAll(categoryRepo.computeBalances(missing));
+                balanceRepo.flush();
+            }
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void createFor(Long categoryId, Long budgetId, String type) {
+        balanceRepo.save(new CategoryBalance(categoryId, budgetId, type, BigDecimal.ZERO, 0L));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updateType(Long categoryId, String type) {
+        balanceRepo.updateType(categoryId, type);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteForCategory(Long categoryId) {
+        balanceRepo.deleteByCategoryId(categoryId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteForBudget(Long budgetId) {
+        balanceRepo.deleteByBudgetId(budgetId);
+    }
+
+    // recomputes every category from its transactions, chunk by chunk; with fix=true stored rows are corrected
+    public BalanceReport verify(boolean fix) {
+        long checked = 0;
+        long drifted = 0;
+        List<BalanceDrift> drifts = new ArrayList<>();
+
+        Long afterId = 0L;
+        List<Long> ids;
+        do {
+            ids = categoryRepo.findIdsAfter(afterId, Limit.of(rebuildChunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            List<Long> chunk = ids;
+            List<BalanceDrift> chunkDrifts = transactionTemplate.execute(status -> verifyChunk(chunk, fix));
+            checked += ids.size();
+            drifted += chunkDrifts.size();
+            for (BalanceDrift drift : chunkDrifts) {
+                if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                    drifts.add(drift);
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        } while (ids.size() == rebuildChunkSize);
+
+        return BalanceReport.builder()
+                .checkedCategories(checked)
+                .driftedCategories(drifted)
+                .fixed(fix)
+                .drifts(drifts)
+                .build();
+    }
+
+    private List<BalanceDrift> verifyChunk(List<Long> categoryIds, boolean fix) {
+        // locking the rows first makes concurrent writers of these categories wait until the chunk is done
+        List<CategoryBalance> storedRows = fix ? balanceRepo.lockByCategoryIdIn(categoryIds) : balanceRepo.findAllById(categoryIds);
+        Map<Long, CategoryBalance> stored = storedRows.stream()
+                .collect(Collectors.toMap(CategoryBalance::getCategoryId, Function.identity()));
+
+        List<BalanceDrift> drifts = new ArrayList<>();
+        for (CategoryBalance actual : categoryRepo.computeBalances(categoryIds)) {
+            CategoryBalance current = stored.get(actual.getCategoryId());
+            if (current != null
+                    && current.getTotal().compareTo(actual.getTotal()) == 0
+                    && current.getTransactionCount() == actual.getTransactionCount()) {
+                continue;
+            }
+
+            drifts.add(new BalanceDrift(actual.getCategoryId(),
+                    current == null ? null : current.getTotal(), actual.getTotal(),
+                    current == null ? null : current.getTransactionCount(), actual.getTransactionCount()));
+
+            if (fix) {
+                if (current == null) {
+                    balanceRepo.save(actual);
+                } else {
+                    current.setBudgetId(actual.getBudgetId());
+                    current.setType(actual.getType());
+                    current.setTotal(actual.getTotal());
+                    current.setTransactionCount(actual.getTransactionCount());
+                }
+            }
+        }
+        return drifts;
+    }
+}
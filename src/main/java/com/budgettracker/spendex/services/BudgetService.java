@@ -1,73 +1,217 @@
 package com.budgettracker.spendex.services;
 
-import com.budgettracker.spendex.exceptions.ForbiddenException;
-import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
+import com.budgettracker.spendex.dto.BudgetPatch;
+import com.budgettracker.spendex.dto.BudgetSummary;
+import com.budgettracker.spendex.dto.BudgetTypeTotal;
+import com.budgettracker.spendex.dto.BudgetView;
+import com.budgettracker.spendex.dto.CategoryView;
+import com.budgettracker.spendex.dto.CategorySummary;
+import com.budgettracker.spendex.dto.Expansion;
+import com.budgettracker.spendex.dto.TransactionView;
 import com.budgettracker.spendex.models.Budget;
-import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Category;
 import com.budgettracker.spendex.models.User;
 import com.budgettracker.spendex.repos.BudgetRepo;
-import com.budgettracker.spendex.repos.UserRepo;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import com.budgettracker.spendex.repos.CategoryBalanceRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+// reads run in read-only transactions (no dirty checking, no flush), writes override with @Transactional
 @Service
+@Transactional(readOnly = true)
 public class BudgetService {
     private final BudgetRepo budgetRepo;
-    private final UserRepo userRepo;
+    private final CategoryRepo categoryRepo;
+    private final CategoryBalanceRepo balanceRepo;
+    private final TransactionRepo transactionRepo;
+    private final LedgerService ledgerService;
+    private final CategoryService categoryService;
+    private final CurrentUserResolver currentUserResolver;
+    private final OwnershipResolver ownershipResolver;
+    private final VersionGuard versionGuard;
 
-    public BudgetService(BudgetRepo budgetRepo, UserRepo userRepo) {
+    public BudgetService(BudgetRepo budgetRepo, CategoryRepo categoryRepo, CategoryBalanceRepo balanceRepo,
+                         TransactionRepo transactionRepo, LedgerService ledgerService, CategoryService categoryService,
+                         CurrentUserResolver currentUserResolver, OwnershipResolver ownershipResolver,
+                         VersionGuard versionGuard) {
         this.budgetRepo = budgetRepo;
-        this.userRepo = userRepo;
-    }
-
-    private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepo.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        this.categoryRepo = categoryRepo;
+        this.balanceRepo = balanceRepo;
+        this.transactionRepo = transactionRepo;
+        this.ledgerService = ledgerService;
+        this.categoryService = categoryService;
+        this.currentUserResolver = currentUserResolver;
+        this.ownershipResolver = ownershipResolver;
+        this.versionGuard = versionGuard;
     }
 
+    @Transactional
     public Budget createBudget(Budget budget) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserResolver.get();
         budget.setUser(currentUser);
         return budgetRepo.save(budget);
     }
 
     public Budget getBudget(Long id) {
-        Budget budget = budgetRepo.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Budget", id));
-
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN && !budget.getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can view only your own budgets!");
-        }
-
-        return budget;
+        return ownershipResolver.budget(id, "You can view only your own budgets!");
     }
 
-    public Budget updateBudget(Long id, Budget details) {
+    // expectedVersion comes from If-Match, null skips the check; changes are flushed at commit, only the
+    // columns that differ and only while the version is unchanged
+    @Transactional
+    public Budget updateBudget(Long id, Budget details, Long expectedVersion) {
         Budget budget = getBudget(id);
+        versionGuard.check(expectedVersion, budget.getVersion(), "Budget", id);
 
         budget.setName(details.getName());
         budget.setDescription(details.getDescription());
         budget.setStartDate(details.getStartDate());
         budget.setEndDate(details.getEndDate());
-        return budgetRepo.save(budget);
+        return budget;
+    }
+
+    @Transactional
+    public Budget patchBudget(Long id, BudgetPatch patch, Long expectedVersion) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be provided");
+        }
+        Budget budget = getBudget(id);
+        versionGuard.check(expectedVersion, budget.getVersion(), "Budget", id);
+
+        if (patch.name() != null) {
+            budget.setName(patch.name());
+        }
+        if (patch.description() != null) {
+            budget.setDescription(patch.description());
+        }
+        if (patch.startDate() != null) {
+            budget.setStartDate(patch.startDate());
+        }
+        if (patch.endDate() != null) {
+            budget.setEndDate(patch.endDate());
+        }
+        return budget;
+    }
+
+    @Transactional
+    public void deleteBudget(Long id, Long expectedVersion) {
+        Budget budget = getBudget(id);
+        versionGuard.check(expectedVersion, budget.getVersion(), "Budget", id);
+        // the budget row first: no category is added to it until commit, and a change since the read is a conflict
+        Long currentVersion = budgetRepo.lockVersionById(id).orElse(null);
+        if (!budget.getVersion().equals(currentVersion)) {
+            throw new ObjectOptimisticLockingFailureException(Budget.class, id);
+        }
+        // set-based: nothing below the budget is loaded, and the statement count does not grow with its size
+        List<Long> categoryIds = categoryRepo.findIdsByBudgetId(id);
+        ledgerService.lockCategories(categoryIds);
+        ledgerService.budgetDeleted(id, budget.getUser().getId(), categoryIds);
+        transactionRepo.deleteByBudgetId(id);
+        categoryRepo.deleteByBudgetId(id);
+        if (budgetRepo.deleteByIdAndVersion(id, budget.getVersion()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Budget.class, id);
+        }
+    }
+
+    public BudgetView getBudgetView(Long id, Expansion expansion) {
+        return withCategories(List.of(BudgetView.from(getBudget(id))), expansion).get(0);
+    }
+
+    // budget with its categories and their transactions in two statements, however big the budget is;
+    // from and to (inclusive, both optional) limit the transactions, every category is always listed
+    public BudgetView getBudgetTree(Long id, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        Budget budget = ownershipResolver.budgetTree(id, "You can view only your own budgets!");
+
+        Map<Long, List<TransactionView>> byCategory = new LinkedHashMap<>();
+        for (TransactionView transaction : transactionRepo.findTreeViews(budget.getId(), from, to)) {
+            byCategory.computeIfAbsent(transaction.categoryId(), key -> new ArrayList<>()).add(transaction);
+        }
+        List<CategoryView> categories = budget.getCategories().stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .map(category -> CategoryView.from(category)
+                        .withTransactions(byCategory.getOrDefault(category.getId(), List.of())))
+                .toList();
+        return BudgetView.from(budget).withCategories(categories);
     }
 
-    public void deleteBudget(Long id) {
+    // the current user's own budgets, admins included; everyone's budgets are paged through AdminListingService
+    public List<BudgetView> getAllBudgets(Expansion expansion) {
+        User currentUser = currentUserResolver.get();
+        return withCategories(budgetRepo.findViewsByUserId(currentUser.getId()), expansion);
+    }
+
+    // nested levels are loaded per level with IN queries, never per budget or per category
+    private List<BudgetView> withCategories(List<BudgetView> budgets, Expansion expansion) {
+        if (!expansion.categories() || budgets.isEmpty()) {
+            return budgets;
+        }
+        Map<Long, List<CategoryView>> byBudget = categoryService.getViewsByBudgetIds(
+                budgets.stream().map(BudgetView::id).toList(), expansion);
+        return budgets.stream()
+                .map(budget -> budget.withCategories(byBudget.getOrDefault(budget.id(), List.of())))
+                .toList();
+    }
+
+    // spent vs. planned for one budget, read from the maintained category balances
+    public BudgetSummary getBudgetSummary(Long id) {
         Budget budget = getBudget(id);
-        budgetRepo.delete(budget);
+        List<CategorySummary> categories = balanceRepo.summarizeByBudgetId(id);
+
+        BigDecimal income = BigDecimal.ZERO;
+        BigDecimal expense = BigDecimal.ZERO;
+        for (CategorySummary category : categories) {
+            if ("income".equals(category.type())) {
+                income = income.add(category.total());
+            } else if ("expense".equals(category.type())) {
+                expense = expense.add(category.total());
+            }
+        }
+
+        return BudgetSummary.builder()
+                .budgetId(budget.getId())
+                .name(budget.getName())
+                .totalIncome(income)
+                .totalExpense(expense)
+                .balance(income.subtract(expense))
+                .categories(categories)
+                .build();
     }
 
-    public List<Budget> getAllBudgets() {
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() == Role.ADMIN) {
-            return budgetRepo.findAll();
-        } else {
-            return budgetRepo.findByUser(currentUser);
+    // income/expense totals of every budget of the current user
+    public List<BudgetSummary> getSummaryOverview() {
+        User currentUser = currentUserResolver.get();
+
+        Map<Long, BudgetSummary> summaries = new LinkedHashMap<>();
+        for (BudgetTypeTotal row : balanceRepo.summarizeByUserId(currentUser.getId())) {
+            BudgetSummary summary = summaries.computeIfAbsent(row.budgetId(), budgetId -> BudgetSummary.builder()
+                    .budgetId(budgetId)
+                    .name(row.budgetName())
+                    .totalIncome(BigDecimal.ZERO)
+                    .totalExpense(BigDecimal.ZERO)
+                    .build());
+            if ("income".equals(row.type())) {
+                summary.setTotalIncome(summary.getTotalIncome().add(row.total()));
+            } else if ("expense".equals(row.type())) {
+                summary.setTotalExpense(summary.getTotalExpense().add(row.total()));
+            }
         }
+
+        List<BudgetSummary> result = new ArrayList<>(summaries.values());
+        result.forEach(summary -> summary.setBalance(summary.getTotalIncome().subtract(summary.getTotalExpense())));
+        return result;
     }
 }
@@ -1,91 +1,163 @@
 package com.budgettracker.spendex.services;
 
-import com.budgettracker.spendex.exceptions.ForbiddenException;
+import com.budgettracker.spendex.dto.CategoryPatch;
+import com.budgettracker.spendex.dto.CategoryView;
+import com.budgettracker.spendex.dto.Expansion;
+import com.budgettracker.spendex.dto.TransactionView;
 import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
 import com.budgettracker.spendex.models.Category;
-import com.budgettracker.spendex.models.Role;
-import com.budgettracker.spendex.models.User;
 import com.budgettracker.spendex.repos.BudgetRepo;
 import com.budgettracker.spendex.repos.CategoryRepo;
-import com.budgettracker.spendex.repos.UserRepo;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Service
+@Transactional(readOnly = true)
 public class CategoryService {
 
+    // keeps IN lists well below the bind parameter limits of the drivers
+    private static final int IN_CHUNK_SIZE = 1000;
+
     private final CategoryRepo categoryRepo;
     private final BudgetRepo budgetRepo;
-    private final UserRepo userRepo;
+    private final TransactionRepo transactionRepo;
+    private final LedgerService ledgerService;
+    private final OwnershipResolver ownershipResolver;
+    private final VersionGuard versionGuard;
 
-    public CategoryService(CategoryRepo categoryRepo, BudgetRepo budgetRepo, UserRepo userRepo) {
+    public CategoryService(CategoryRepo categoryRepo, BudgetRepo budgetRepo, TransactionRepo transactionRepo,
+                           LedgerService ledgerService, OwnershipResolver ownershipResolver, VersionGuard versionGuard) {
         this.categoryRepo = categoryRepo;
         this.budgetRepo = budgetRepo;
-        this.userRepo = userRepo;
+        this.transactionRepo = transactionRepo;
+        this.ledgerService = ledgerService;
+        this.ownershipResolver = ownershipResolver;
+        this.versionGuard = versionGuard;
     }
 
-    private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepo.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    @Transactional
+    public Category createCategory(Category category) {
+        Long budgetId = category.getBudget().getId();
+        ownershipResolver.budgetOwner(budgetId, "You can add categories only to your own budgets!");
+
+        // ownership is settled, a reference is enough for the foreign key. The shared lock waits for a
+        // deleteBudget of the same budget, after which the budget is gone
+        budgetRepo.lockSharedById(budgetId).orElseThrow(() -> new ResourceNotFoundException("Budget", budgetId));
+        category.setBudget(budgetRepo.getReferenceById(budgetId));
+        Category saved = categoryRepo.save(category);
+        ledgerService.categoryCreated(saved.getId(), budgetId, saved.getType());
+        return saved;
     }
 
-    public Category createCategory(Category category) {
-        var budget = budgetRepo.findById(category.getBudget().getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Budget", category.getBudget().getId()));
+    public Category getCategory(Long id) {
+        return ownershipResolver.category(id, "You can view only your own categories!");
+    }
 
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN && !budget.getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can add categories only to your own budgets!");
-        }
+    // expectedVersion comes from If-Match, null skips the check
+    @Transactional
+    public Category updateCategory(Long id, Category details, Long expectedVersion) {
+        Category category = getCategory(id);
+        versionGuard.check(expectedVersion, category.getVersion(), "Category", id);
 
-        return categoryRepo.save(category);
+        category.setName(details.getName());
+        category.setType(details.getType());
+        category.setIconUrl(details.getIconUrl());
+        ledgerService.categoryUpdated(category.getId(), category.getBudget().getUser().getId(), category.getType());
+        return category;
     }
 
-    public Category getCategory(Long id) {
-        Category category = categoryRepo.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Category", id));
-
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN &&
-                !category.getBudget().getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can view only your own categories!");
+    @Transactional
+    public Category patchCategory(Long id, CategoryPatch patch, Long expectedVersion) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be provided");
         }
+        Category category = getCategory(id);
+        versionGuard.check(expectedVersion, category.getVersion(), "Category", id);
 
+        if (patch.name() != null) {
+            category.setName(patch.name());
+        }
+        if (patch.iconUrl() != null) {
+            category.setIconUrl(patch.iconUrl());
+        }
+        if (patch.type() != null) {
+            category.setType(patch.type());
+            ledgerService.categoryUpdated(category.getId(), category.getBudget().getUser().getId(), category.getType());
+        }
         return category;
     }
 
-    public Category updateCategory(Long id, Category details) {
+    @Transactional
+    public void deleteCategory(Long id, Long expectedVersion) {
         Category category = getCategory(id);
+        versionGuard.check(expectedVersion, category.getVersion(), "Category", id);
+        ledgerService.lockCategories(List.of(id));
+        ledgerService.categoryDeleted(id, category.getBudget().getUser().getId());
+        // the transactions go in one statement instead of being loaded and removed one by one
+        transactionRepo.deleteByCategoryId(id);
+        if (categoryRepo.deleteByIdAndVersion(id, category.getVersion()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Category.class, id);
+        }
+    }
 
-        category.setName(details.getName());
-        category.setType(details.getType());
-        category.setIconUrl(details.getIconUrl());
-        return categoryRepo.save(category);
+    public CategoryView getCategoryView(Long id, Expansion expansion) {
+        CategoryView category = CategoryView.from(getCategory(id));
+        if (!expansion.transactions()) {
+            return category;
+        }
+        return category.withTransactions(transactionRepo.findViewsByCategoryId(id));
     }
 
-    public void deleteCategory(Long id) {
-        Category category = getCategory(id);
-        categoryRepo.delete(category);
+    public List<CategoryView> getCategoriesByBudget(Long budgetId, Expansion expansion) {
+        ownershipResolver.budgetOwner(budgetId, "You can view categories only for your own budgets!");
+
+        return withTransactions(categoryRepo.findViewsByBudgetIdIn(List.of(budgetId)), expansion);
     }
 
-    public List<Category> getAllCategories() {
-        return categoryRepo.findAll(); // tik admin
+    // categories of the given budgets grouped by budget id, one query per level (and per IN chunk)
+    public Map<Long, List<CategoryView>> getViewsByBudgetIds(Collection<Long> budgetIds, Expansion expansion) {
+        List<CategoryView> categories = withTransactions(inChunks(budgetIds, categoryRepo::findViewsByBudgetIdIn), expansion);
+
+        Map<Long, List<CategoryView>> byBudget = new LinkedHashMap<>();
+        for (CategoryView category : categories) {
+            byBudget.computeIfAbsent(category.budgetId(), key -> new ArrayList<>()).add(category);
+        }
+        return byBudget;
     }
 
-    public List<Category> getCategoriesByBudget(Long budgetId) {
-        var budget = budgetRepo.findById(budgetId)
-                .orElseThrow(() -> new ResourceNotFoundException("Budget", budgetId));
+    private List<CategoryView> withTransactions(List<CategoryView> categories, Expansion expansion) {
+        if (!expansion.transactions() || categories.isEmpty()) {
+            return categories;
+        }
+        List<Long> categoryIds = categories.stream().map(CategoryView::id).toList();
 
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN &&
-                !budget.getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can view categories only for your own budgets!");
+        Map<Long, List<TransactionView>> byCategory = new LinkedHashMap<>();
+        for (TransactionView transaction : inChunks(categoryIds, transactionRepo::findViewsByCategoryIdIn)) {
+            byCategory.computeIfAbsent(transaction.categoryId(), key -> new ArrayList<>()).add(transaction);
         }
+        return categories.stream()
+                .map(category -> category.withTransactions(byCategory.getOrDefault(category.id(), List.of())))
+                .toList();
+    }
 
-        return categoryRepo.findByBudget(budget);
+    private static <T> List<T> inChunks(Collection<Long> ids, Function<List<Long>, List<T>> query) {
+        List<Long> all = List.copyOf(ids);
+        if (all.size() <= IN_CHUNK_SIZE) {
+            return all.isEmpty() ? List.of() : query.apply(all);
+        }
+        List<T> result = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            result.addAll(query.apply(all.subList(from, Math.min(all.size(), from + IN_CHUNK_SIZE))));
+        }
+        return result;
     }
 }
@@ -0,0 +1,32 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.User;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+// hands out the User the JWT filter already put into the SecurityContext, no repository call
+@Component
+public class CurrentUserResolver {
+
+    private final PrincipalCache principalCache;
+
+    public CurrentUserResolver(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    public User get() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new AuthenticationCredentialsNotFoundException("Not authenticated");
+        }
+
+        if (authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+
+        // principal set by something other than the JWT filter (e.g. tests)
+        return principalCache.get(authentication.getName());
+    }
+}
@@ -0,0 +1,109 @@
+package com.budgettracker.spendex.services;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// single entry point for everything derived from transactions: tables are written in the caller's
+// transaction, in-memory caches and indexes follow after it commits
+@Service
+public class LedgerService {
+
+    private final BalanceService balanceService;
+    private final RollupService rollupService;
+    private final AnalyticsService analyticsService;
+    private final SearchIndexService searchIndexService;
+    private final OwnershipIndex ownershipIndex;
+
+    public LedgerService(BalanceService balanceService, RollupService rollupService, AnalyticsService analyticsService,
+                         SearchIndexService searchIndexService, OwnershipIndex ownershipIndex) {
+        this.balanceService = balanceService;
+        this.rollupService = rollupService;
+        this.analyticsService = analyticsService;
+        this.searchIndexService = searchIndexService;
+        this.ownershipIndex = ownershipIndex;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(TransactionDeltas deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // balances first, their row locks serialize writers of the same category for the rollup upserts
+        balanceService.apply(deltas);
+        rollupService.apply(deltas);
+
+        Set<Long> userIds = deltas.userIds();
+        List<TransactionDeltas.Document> documents = deltas.documents();
+        afterCommit(() -> {
+            analyticsService.invalidate(userIds);
+            searchIndexService.apply(documents);
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void categoryCreated(Long categoryId, Long budgetId, String type) {
+        balanceService.createFor(categoryId, budgetId, type);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void categoryUpdated(Long categoryId, Long userId, String type) {
+        balanceService.updateType(categoryId, type);
+        // the analytics columns split totals by the type they were loaded with
+        afterCommit(() -> analyticsService.invalidate(Set.of(userId)));
+    }
+
+    // transaction writers adjust these balance rows before their inserts reach the database, so holding the rows
+    // keeps new transactions out of categories that are about to be deleted
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockCategories(Collection<Long> categoryIds) {
+        if (!categoryIds.isEmpty()) {
+            balanceService.lock(categoryIds);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void categoryDeleted(Long categoryId, Long userId) {
+        rollupService.deleteForCategory(categoryId);
+        balanceService.deleteForCategory(categoryId);
+        // the category's transactions went with it
+        invalidateCachesAfterCommit(userId);
+        afterCommit(() -> ownershipIndex.forgetCategories(Set.of(categoryId)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void budgetDeleted(Long budgetId, Long userId, Collection<Long> categoryIds) {
+        rollupService.deleteForBudget(budgetId);
+        balanceService.deleteForBudget(budgetId);
+        invalidateCachesAfterCommit(userId);
+        List<Long> deletedCategories = List.copyOf(categoryIds);
+        afterCommit(() -> ownershipIndex.forgetBudget(budgetId, deletedCategories));
+    }
+
+    private void invalidateCachesAfterCommit(Long userId) {
+        afterCommit(() -> {
+            analyticsService.invalidate(Set.of(userId));
+            searchIndexService.invalidate(Set.of(userId));
+        });
+    }
+
+    // a rolled back write leaves the caches as they are
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
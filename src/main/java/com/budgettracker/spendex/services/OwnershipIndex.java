@@ -0,0 +1,122 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.OwnerRef;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.util.ConcurrentLongLongMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// categoryId -> owner id and budgetId -> owner id, warmed lazily from the database. Budgets never change
+// owner, so an entry only goes stale when its row is deleted; LedgerService evicts those after commit
+@Component
+public class OwnershipIndex {
+
+    private final CategoryRepo categoryRepo;
+    private final BudgetRepo budgetRepo;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spendex.ownership-index.max-entries:1000000}")
+    private int maxEntries;
+
+    // bumped by every eviction, a load that raced with one drops what it put
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ConcurrentLongLongMap categoryOwners;
+    private ConcurrentLongLongMap budgetOwners;
+
+    public OwnershipIndex(CategoryRepo categoryRepo, BudgetRepo budgetRepo, MeterRegistry meterRegistry) {
+        this.categoryRepo = categoryRepo;
+        this.budgetRepo = budgetRepo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        categoryOwners = new ConcurrentLongLongMap(maxEntries);
+        budgetOwners = new ConcurrentLongLongMap(maxEntries);
+        Gauge.builder("spendex.ownership.index.size", categoryOwners, ConcurrentLongLongMap::size)
+                .tag("kind", "category")
+                .register(meterRegistry);
+        Gauge.builder("spendex.ownership.index.size", budgetOwners, ConcurrentLongLongMap::size)
+                .tag("kind", "budget")
+                .register(meterRegistry);
+    }
+
+    // null when the category does not exist
+    public Long categoryOwner(Long categoryId) {
+        return owner(categoryOwners, categoryId, categoryRepo::findOwnerIdById);
+    }
+
+    // null when the budget does not exist
+    public Long budgetOwner(Long budgetId) {
+        return owner(budgetOwners, budgetId, budgetRepo::findOwnerIdById);
+    }
+
+    // owners of the categories that exist; the misses are loaded with one query
+    public Map<Long, Long> categoryOwners(Collection<Long> categoryIds) {
+        Map<Long, Long> owners = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long categoryId : categoryIds) {
+            long owner = categoryOwners.get(categoryId);
+            if (owner == ConcurrentLongLongMap.NO_VALUE) {
+                missing.add(categoryId);
+            } else {
+                owners.put(categoryId, owner);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = evictions.get();
+            List<OwnerRef> loaded = categoryRepo.findOwnersByIdIn(missing);
+            for (OwnerRef ref : loaded) {
+                categoryOwners.put(ref.id(), ref.ownerId());
+                owners.put(ref.id(), ref.ownerId());
+            }
+            if (evictions.get() != generation) {
+                loaded.forEach(ref -> categoryOwners.remove(ref.id()));
+            }
+        }
+        return owners;
+    }
+
+    public void forgetCategories(Collection<Long> categoryIds) {
+        evictions.incrementAndGet();
+        categoryIds.forEach(categoryOwners::remove);
+    }
+
+    public void forgetBudget(Long budgetId, Collection<Long> categoryIds) {
+        evictions.incrementAndGet();
+        budgetOwners.remove(budgetId);
+        categoryIds.forEach(categoryOwners::remove);
+    }
+
+    private Long owner(ConcurrentLongLongMap index, Long id, Function<Long, Optional<Long>> loader) {
+        long owner = index.get(id);
+        if (owner != ConcurrentLongLongMap.NO_VALUE) {
+            return owner;
+        }
+        long generation = evictions.get();
+        Optional<Long> loaded = loader.apply(id);
+        if (loaded.isEmpty()) {
+            return null;
+        }
+        index.put(id, loaded.get());
+        if (evictions.get() != generation) {
+            // the row may have been deleted while we read it, better to look it up again next time
+            index.remove(id);
+        }
+        return loaded.get();
+    }
+}
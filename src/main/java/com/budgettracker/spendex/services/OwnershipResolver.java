@@ -0,0 +1,95 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.exceptions.ForbiddenException;
+import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+// loads an entity for the current user in one statement, ownership chain included;
+// admins see everything. Only a miss costs a second query, to tell 404 from 403
+@Component
+public class OwnershipResolver {
+
+    private final BudgetRepo budgetRepo;
+    private final CategoryRepo categoryRepo;
+    private final TransactionRepo transactionRepo;
+    private final CurrentUserResolver currentUserResolver;
+    private final OwnershipIndex ownershipIndex;
+
+    public OwnershipResolver(BudgetRepo budgetRepo, CategoryRepo categoryRepo, TransactionRepo transactionRepo,
+                             CurrentUserResolver currentUserResolver, OwnershipIndex ownershipIndex) {
+        this.budgetRepo = budgetRepo;
+        this.categoryRepo = categoryRepo;
+        this.transactionRepo = transactionRepo;
+        this.currentUserResolver = currentUserResolver;
+        this.ownershipIndex = ownershipIndex;
+    }
+
+    // owner id of a budget the current user may write to, from the ownership index; nothing is loaded,
+    // so callers that only need the foreign key use a reference (getReferenceById)
+    public Long budgetOwner(Long id, String forbiddenMessage) {
+        return checkOwner(ownershipIndex.budgetOwner(id), "Budget", id, forbiddenMessage);
+    }
+
+    public Long categoryOwner(Long id, String forbiddenMessage) {
+        return checkOwner(ownershipIndex.categoryOwner(id), "Category", id, forbiddenMessage);
+    }
+
+    public Budget budget(Long id, String forbiddenMessage) {
+        User currentUser = currentUserResolver.get();
+        Optional<Budget> budget = currentUser.getRole() == Role.ADMIN
+                ? budgetRepo.findWithOwnerById(id)
+                : budgetRepo.findOwnedById(id, currentUser.getId());
+        return budget.orElseThrow(() -> miss(budgetRepo, "Budget", id, forbiddenMessage));
+    }
+
+    // same as budget(), with the categories fetched in the same statement
+    public Budget budgetTree(Long id, String forbiddenMessage) {
+        User currentUser = currentUserResolver.get();
+        Optional<Budget> budget = currentUser.getRole() == Role.ADMIN
+                ? budgetRepo.findTreeWithOwnerById(id)
+                : budgetRepo.findOwnedTreeById(id, currentUser.getId());
+        return budget.orElseThrow(() -> miss(budgetRepo, "Budget", id, forbiddenMessage));
+    }
+
+    public Category category(Long id, String forbiddenMessage) {
+        User currentUser = currentUserResolver.get();
+        Optional<Category> category = currentUser.getRole() == Role.ADMIN
+                ? categoryRepo.findWithOwnerById(id)
+                : categoryRepo.findOwnedById(id, currentUser.getId());
+        return category.orElseThrow(() -> miss(categoryRepo, "Category", id, forbiddenMessage));
+    }
+
+    public Transaction transaction(Long id, String forbiddenMessage) {
+        User currentUser = currentUserResolver.get();
+        Optional<Transaction> transaction = currentUser.getRole() == Role.ADMIN
+                ? transactionRepo.findWithOwnerById(id)
+                : transactionRepo.findOwnedById(id, currentUser.getId());
+        return transaction.orElseThrow(() -> miss(transactionRepo, "Transaction", id, forbiddenMessage));
+    }
+
+    private Long checkOwner(Long ownerId, String resource, Long id, String forbiddenMessage) {
+        if (ownerId == null) {
+            throw new ResourceNotFoundException(resource, id);
+        }
+        User currentUser = currentUserResolver.get();
+        if (currentUser.getRole() != Role.ADMIN && !ownerId.equals(currentUser.getId())) {
+            throw new ForbiddenException(forbiddenMessage);
+        }
+        return ownerId;
+    }
+
+    private static RuntimeException miss(JpaRepository<?, Long> repo, String resource, Long id, String forbiddenMessage) {
+        return repo.existsById(id) ? new ForbiddenException(forbiddenMessage) : new ResourceNotFoundException(resource, id);
+    }
+}
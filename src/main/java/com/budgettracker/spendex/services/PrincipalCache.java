@@ -0,0 +1,68 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// email -> User, shared by the JWT filter, the login provider and the services
+@Service
+public class PrincipalCache {
+
+    private final UserRepo userRepo;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spendex.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${spendex.principal-cache.ttl:PT5M}")
+    private Duration ttl;
+
+    private Cache<String, User> users;
+
+    public PrincipalCache(UserRepo userRepo, MeterRegistry meterRegistry) {
+        this.userRepo = userRepo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // exposes cache.gets{result=hit|miss}, cache.evictions, ... under /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "principals");
+    }
+
+    public User get(String email) {
+        // unknown emails are not cached, the loader returns null for them
+        User user = users.get(email, key -> userRepo.findByEmail(key).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        return user;
+    }
+
+    public void evict(String email) {
+        users.invalidate(email);
+    }
+
+    public void evictAll() {
+        users.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return users.stats();
+    }
+}
@@ -0,0 +1,202 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.RefreshToken;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.RefreshTokenRepo;
+import com.budgettracker.spendex.util.RevocationFilter;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class RefreshTokenService {
+
+    static final String FAMILY_CLAIM = "fam";
+
+    private final RefreshTokenRepo refreshTokenRepo;
+    private final JwtService jwtService;
+
+    @Value("${security.jwt.ref-expiration-time}")
+    private long jwtRefExpiration;
+
+    @Value("${spendex.refresh-tokens.filter-bits:1048576}")
+    private int filterBits;
+
+    @Value("${spendex.refresh-tokens.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    // rotated/revoked token ids that have not expired yet; swapped when the purge job rebuilds it
+    private volatile RevocationFilter revoked;
+
+    // families revoked as a whole (logout, reuse, disabled user); their access tokens are refused as well
+    private volatile RevocationFilter revokedFamilies;
+
+    public RefreshTokenService(RefreshTokenRepo refreshTokenRepo, JwtService jwtService) {
+        this.refreshTokenRepo = refreshTokenRepo;
+        this.jwtService = jwtService;
+    }
+
+    @PostConstruct
+    void init() {
+        revoked = new RevocationFilter(filterBits, refreshTokenRepo.findRevokedIds(Instant.now()));
+        revokedFamilies = new RevocationFilter(filterBits, refreshTokenRepo.findRevokedFamilies());
+    }
+
+    // new login - starts a new family
+    public String newFamily() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Transactional
+    public String issue(User user, String family) {
+        String id = UUID.randomUUID().toString();
+        refreshTokenRepo.save(RefreshToken.builder()
+                .id(id)
+                .family(family)
+                .userId(user.getId())
+                .expiresAt(Instant.now().plusMillis(jwtRefExpiration))
+                .build());
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(Claims.ID, id);
+        claims.put(FAMILY_CLAIM, family);
+        return jwtService.generateRefreshToken(claims, user);
+    }
+
+    // consumes a refresh token and returns its family; presenting a used token revokes the whole family
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public String rotate(VerifiedToken token) {
+        String id = (String) token.claims().get(Claims.ID);
+        String family = (String) token.claims().get(FAMILY_CLAIM);
+        if (id == null || family == null) {
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+
+        if (revoked.isRevoked(id)) {
+            revokeFamily(family);
+            throw new IllegalArgumentException("Refresh token has already been used");
+        }
+
+        if (refreshTokenRepo.markUsed(id) == 0) {
+            // lost a race with another request using the same token, or it was never stored
+            revokeFamily(family);
+            throw new IllegalArgumentException("Refresh token has already been used");
+        }
+        markRevoked(List.of(id));
+        return family;
+    }
+
+    @Transactional
+    public void revoke(VerifiedToken token) {
+        String family = (String) token.claims().get(FAMILY_CLAIM);
+        if (family == null) {
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+        revokeFamily(family);
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepo.revokeAllForUser(userId);
+        markRevoked(refreshTokenRepo.findIdsByUserId(userId));
+        markFamiliesRevoked(refreshTokenRepo.findFamiliesByUserId(userId));
+    }
+
+    // checked by the JWT filter for every access token, without touching the database
+    public boolean isSessionRevoked(VerifiedToken token) {
+        String family = token.session();
+        return family != null && revokedFamilies.isRevoked(family);
+    }
+
+    private void revokeFamily(String family) {
+        refreshTokenRepo.revokeFamily(family);
+        markRevoked(refreshTokenRepo.findIdsByFamily(family));
+        markFamiliesRevoked(List.of(family));
+    }
+
+    // the filters only learn of a revocation once its rows are committed, a rolled back one leaves them as they are
+    private void markRevoked(List<String> ids) {
+        afterCommit(() -> {
+            synchronized (this) {
+                ids.forEach(revoked::add);
+            }
+        });
+    }
+
+    private void markFamiliesRevoked(List<String> families) {
+        afterCommit(() -> {
+            synchronized (this) {
+                families.forEach(revokedFamilies::add);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // expired tokens can no longer be presented, so they leave both the table and the filter
+    @Scheduled(fixedDelayString = "${spendex.refresh-tokens.purge-interval:PT10M}")
+    public void purgeExpired() {
+        Set<String> purged = new HashSet<>();
+        List<String> ids;
+        do {
+            ids = refreshTokenRepo.findExpiredIds(Instant.now(), PageRequest.of(0, purgeBatchSize));
+            if (!ids.isEmpty()) {
+                refreshTokenRepo.deleteAllByIdInBatch(ids);
+                purged.addAll(ids);
+            }
+        } while (ids.size() == purgeBatchSize);
+
+        if (!purged.isEmpty()) {
+            synchronized (this) {
+                Set<String> remaining = new HashSet<>(revoked.ids());
+                remaining.removeAll(purged);
+                revoked = new RevocationFilter(filterBits, remaining);
+            }
+            purgeFamilies();
+        }
+    }
+
+    // a family without any token left is past the lifetime of its access tokens too
+    private void purgeFamilies() {
+        List<String> known = List.copyOf(revokedFamilies.ids());
+        Set<String> gone = new HashSet<>(known);
+        for (int from = 0; from < known.size(); from += purgeBatchSize) {
+            List<String> batch = known.subList(from, Math.min(from + purgeBatchSize, known.size()));
+            refreshTokenRepo.findExistingFamilies(batch).forEach(gone::remove);
+        }
+
+        if (!gone.isEmpty()) {
+            synchronized (this) {
+                // families revoked since the snapshot still have their rows, they are kept
+                Set<String> remaining = new HashSet<>(revokedFamilies.ids());
+                remaining.removeAll(gone);
+                revokedFamilies = new RevocationFilter(filterBits, remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.Granularity;
+import com.budgettracker.spendex.dto.TimeseriesPoint;
+import com.budgettracker.spendex.models.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Service
+public class ReportService {
+
+    private final RollupService rollupService;
+    private final CurrentUserResolver currentUserResolver;
+
+    @Value("${spendex.reports.max-daily-range-days:366}")
+    private int maxDailyRangeDays;
+
+    public ReportService(RollupService rollupService, CurrentUserResolver currentUserResolver) {
+        this.rollupService = rollupService;
+        this.currentUserResolver = currentUserResolver;
+    }
+
+    // spending over time of the current user, read only from the rollup tables
+    public List<TimeseriesPoint> getTimeseries(LocalDate from, LocalDate to, String granularity,
+                                               Long budgetId, Long categoryId) {
+        Granularity resolved = Granularity.from(granularity);
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (resolved == Granularity.DAY && ChronoUnit.DAYS.between(from, to) >= maxDailyRangeDays) {
+            throw new IllegalArgumentException("Daily series are limited to " + maxDailyRangeDays + " days, use granularity=month");
+        }
+
+        User currentUser = currentUserResolver.get();
+        return rollupService.getSeries(currentUser.getId(), from, to, resolved, budgetId, categoryId);
+    }
+}
@@ -0,0 +1,200 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.BackfillStatus;
+import com.budgettracker.spendex.dto.Granularity;
+import com.budgettracker.spendex.dto.TimeseriesPoint;
+import com.budgettracker.spendex.models.DailyRollup;
+import com.budgettracker.spendex.models.MonthlyRollup;
+import com.budgettracker.spendex.models.RollupKey;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.DailyRollupRepo;
+import com.budgettracker.spendex.repos.MonthlyRollupRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// daily and monthly rollups of transactions, adjusted on every write and back-filled in chunks
+@Service
+public class RollupService {
+
+    private final DailyRollupRepo dailyRepo;
+    private final MonthlyRollupRepo monthlyRepo;
+    private final TransactionRepo transactionRepo;
+    private final CategoryRepo categoryRepo;
+    private final BalanceService balanceService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${spendex.rollups.backfill-chunk-size:200}")
+    private int backfillChunkSize;
+
+    @Value("${spendex.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private ExecutorService executor;
+
+    // only one back-fill at a time, guarded by this
+    private BackfillStatus backfill = BackfillStatus.builder().state("IDLE").build();
+
+    public RollupService(DailyRollupRepo dailyRepo, MonthlyRollupRepo monthlyRepo, TransactionRepo transactionRepo,
+                         CategoryRepo categoryRepo, BalanceService balanceService, EntityManager entityManager,
+                         TransactionTemplate transactionTemplate) {
+        this.dailyRepo = dailyRepo;
+        this.monthlyRepo = monthlyRepo;
+        this.transactionRepo = transactionRepo;
+        this.categoryRepo = categoryRepo;
+        this.balanceService = balanceService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rollup-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // callers apply the balances first, for every category whose rollups change - their row locks keep two writers
+    // of a category from inserting the same rollup row
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(TransactionDeltas deltas) {
+        Map<RollupKey, TransactionDeltas.Change> months = new LinkedHashMap<>();
+        deltas.days().forEach((day, change) -> {
+            if (change.isZero()) {
+                return;
+            }
+            if (dailyRepo.adjust(day.userId(), day.categoryId(), day.date(), change.amount(), change.count()) == 0) {
+                entityManager.persist(new DailyRollup(day.userId(), day.categoryId(), day.date(), change.amount(), change.count()));
+            }
+            months.computeIfAbsent(new RollupKey(day.userId(), day.categoryId(), day.date().withDayOfMonth(1)),
+                    key -> new TransactionDeltas.Change()).add(change.amount(), change.count());
+        });
+
+        months.forEach((month, change) -> {
+            if (change.isZero()) {
+                return;
+            }
+            if (monthlyRepo.adjust(month.getUserId(), month.getCategoryId(), month.getPeriodStart(), change.amount(), change.count()) == 0) {
+                entityManager.persist(new MonthlyRollup(month.getUserId(), month.getCategoryId(), month.getPeriodStart(),
+                        change.amount(), change.count()));
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteForCategory(Long categoryId) {
+        dailyRepo.deleteByCategoryIdIn(List.of(categoryId));
+        monthlyRepo.deleteByCategoryIdIn(List.of(categoryId));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteForBudget(Long budgetId) {
+        dailyRepo.deleteByBudgetId(budgetId);
+        monthlyRepo.deleteByBudgetId(budgetId);
+    }
+
+    public List<TimeseriesPoint> getSeries(Long userId, LocalDate from, LocalDate to, Granularity granularity,
+                                           Long budgetId, Long categoryId) {
+        if (granularity == Granularity.MONTH) {
+            return monthlyRepo.findSeries(userId, from.withDayOfMonth(1), to, budgetId, categoryId);
+        }
+        return dailyRepo.findSeries(userId, from, to, budgetId, categoryId);
+    }
+
+    // data written before the rollup tables existed is picked up once, on the first start
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (backfillOnStartup && dailyRepo.count() == 0 && transactionRepo.count() > 0) {
+            startBackfill();
+        }
+    }
+
+    public synchronized BackfillStatus startBackfill() {
+        if (!"RUNNING".equals(backfill.getState())) {
+            backfill = BackfillStatus.builder().state("RUNNING").startedAt(LocalDateTime.now()).build();
+            executor.execute(this::runBackfill);
+        }
+        return getBackfillStatus();
+    }
+
+    public synchronized BackfillStatus getBackfillStatus() {
+        return backfill.toBuilder().build();
+    }
+
+    private void runBackfill() {
+        try {
+            Long afterId = 0L;
+            List<Long> ids;
+            do {
+                ids = categoryRepo.findIdsAfter(afterId, Limit.of(backfillChunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                List<Long> chunk = ids;
+                transactionTemplate.executeWithoutResult(status -> backfillChunk(chunk));
+                synchronized (this) {
+                    backfill.setProcessedCategories(backfill.getProcessedCategories() + ids.size());
+                }
+                afterId = ids.get(ids.size() - 1);
+            } while (ids.size() == backfillChunkSize);
+            finishBackfill("COMPLETED", null);
+        } catch (RuntimeException e) {
+            finishBackfill("FAILED", e.getMessage());
+        }
+    }
+
+    // replaces the rollups of these categories; the balance locks hold off concurrent writes until commit
+    private void backfillChunk(List<Long> categoryIds) {
+        balanceService.lock(categoryIds);
+        dailyRepo.deleteByCategoryIdIn(categoryIds);
+        monthlyRepo.deleteByCategoryIdIn(categoryIds);
+
+        Map<RollupKey, MonthlyRollup> months = new LinkedHashMap<>();
+        for (DailyRollup day : transactionRepo.rollupDaily(categoryIds)) {
+            entityManager.persist(day);
+            RollupKey key = day.getId();
+            MonthlyRollup month = months.computeIfAbsent(
+                    new RollupKey(key.getUserId(), key.getCategoryId(), key.getPeriodStart().withDayOfMonth(1)),
+                    monthKey -> new MonthlyRollup(monthKey.getUserId(), monthKey.getCategoryId(), monthKey.getPeriodStart(),
+                            BigDecimal.ZERO, 0L));
+            month.setTotal(month.getTotal().add(day.getTotal()));
+            month.setTransactionCount(month.getTransactionCount() + day.getTransactionCount());
+        }
+        months.values().forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private synchronized void finishBackfill(String state, String error) {
+        backfill.setState(state);
+        backfill.setError(error);
+        backfill.setFinishedAt(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,95 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.SearchRow;
+import com.budgettracker.spendex.dto.TransactionCursor;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.util.TextIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+// per-user description indexes, built on the first search and kept current by the write paths
+@Service
+public class SearchIndexService {
+
+    private final TransactionRepo transactionRepo;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTemplate;
+
+    @Value("${spendex.search.max-heap:128MB}")
+    private DataSize maxHeap;
+
+    @Value("${spendex.search.idle-ttl:PT30M}")
+    private Duration idleTtl;
+
+    private Cache<Long, TextIndex> indexes;
+
+    public SearchIndexService(TransactionRepo transactionRepo, MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager) {
+        this.transactionRepo = transactionRepo;
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void init() {
+        // cold users leave after idle-ttl, least recently used ones first once max-heap is reached
+        indexes = Caffeine.newBuilder()
+                .maximumWeight(maxHeap.toBytes())
+                .weigher((Long userId, TextIndex index) -> (int) Math.min(Integer.MAX_VALUE, index.estimatedBytes()))
+                .expireAfterAccess(idleTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, "search");
+    }
+
+    public List<Long> search(Long userId, String query, TransactionCursor after, int limit) {
+        TextIndex index = indexes.get(userId, this::load);
+        if (after == null) {
+            return index.search(query, Integer.MAX_VALUE, Long.MAX_VALUE, limit);
+        }
+        return index.search(query, Math.toIntExact(after.date().toEpochDay()), after.id(), limit);
+    }
+
+    // only users whose index is loaded are touched; computeIfPresent waits for a load in progress,
+    // and put/remove are idempotent, so a change the load already saw is simply applied again
+    void apply(Collection<TransactionDeltas.Document> documents) {
+        for (TransactionDeltas.Document document : documents) {
+            indexes.asMap().computeIfPresent(document.userId(), (userId, index) -> {
+                if (document.isDeleted()) {
+                    index.remove(document.transactionId());
+                } else {
+                    index.put(document.transactionId(), Math.toIntExact(document.date().toEpochDay()), document.description());
+                }
+                return index; // re-weighed by the cache
+            });
+        }
+    }
+
+    public void invalidate(Collection<Long> userIds) {
+        indexes.invalidateAll(userIds);
+    }
+
+    private TextIndex load(Long userId) {
+        return readOnlyTemplate.execute(status -> {
+            TextIndex index = new TextIndex();
+            try (Stream<SearchRow> rows = transactionRepo.streamSearchRowsByUserId(userId)) {
+                rows.forEach(row -> index.put(row.id(), Math.toIntExact(row.date().toEpochDay()), row.description()));
+            }
+            return index;
+        });
+    }
+}
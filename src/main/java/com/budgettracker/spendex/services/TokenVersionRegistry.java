@@ -0,0 +1,35 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.repos.UserRepo;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// userId -> current token version, read once per user from the db and then kept in memory
+@Service
+public class TokenVersionRegistry {
+
+    private static final int UNKNOWN_USER = -1;
+
+    private final UserRepo userRepo;
+
+    private final ConcurrentMap<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    public TokenVersionRegistry(UserRepo userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    public int current(Long userId) {
+        return versions.computeIfAbsent(userId, id -> userRepo.findTokenVersionById(id).orElse(UNKNOWN_USER));
+    }
+
+    public boolean isCurrent(Long userId, int version) {
+        return current(userId) == version;
+    }
+
+    // called after the new version is saved, so other requests reject older tokens right away
+    public void update(Long userId, int version) {
+        versions.put(userId, version);
+    }
+}
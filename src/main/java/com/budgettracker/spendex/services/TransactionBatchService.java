@@ -0,0 +1,200 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.TransactionBatchOperation;
+import com.budgettracker.spendex.dto.TransactionBatchResult;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// applies many create/update/delete operations in one database transaction, failing items individually
+@Service
+public class TransactionBatchService {
+
+    private final TransactionRepo transactionRepo;
+    private final OwnershipIndex ownershipIndex;
+    private final CurrentUserResolver currentUserResolver;
+    private final EntityManager entityManager;
+    private final LedgerService ledgerService;
+    private final VersionGuard versionGuard;
+
+    @Value("${spendex.batch.max-operations:500}")
+    private int maxOperations;
+
+    public TransactionBatchService(TransactionRepo transactionRepo, OwnershipIndex ownershipIndex,
+                                   CurrentUserResolver currentUserResolver, EntityManager entityManager,
+                                   LedgerService ledgerService, VersionGuard versionGuard) {
+        this.transactionRepo = transactionRepo;
+        this.ownershipIndex = ownershipIndex;
+        this.currentUserResolver = currentUserResolver;
+        this.entityManager = entityManager;
+        this.ledgerService = ledgerService;
+        this.versionGuard = versionGuard;
+    }
+
+    @Transactional
+    public List<TransactionBatchResult> apply(List<TransactionBatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation must be provided");
+        }
+        if (operations.size() > maxOperations) {
+            throw new IllegalArgumentException("At most " + maxOperations + " operations per batch");
+        }
+
+        User currentUser = currentUserResolver.get();
+        boolean admin = currentUser.getRole() == Role.ADMIN;
+
+        // resolve every referenced category (ownership index, one query for the misses) and transaction up front
+        Set<Long> categoryIds = new HashSet<>();
+        Set<Long> transactionIds = new HashSet<>();
+        for (TransactionBatchOperation operation : operations) {
+            if (operation == null) {
+                continue;
+            }
+            if ("create".equals(operation.getOp()) && operation.getCategoryId() != null) {
+                categoryIds.add(operation.getCategoryId());
+            } else if (operation.getId() != null) {
+                transactionIds.add(operation.getId());
+            }
+        }
+
+        Map<Long, Long> categoryOwners = categoryIds.isEmpty() ? Map.of() : ownershipIndex.categoryOwners(categoryIds);
+
+        Map<Long, Transaction> transactions = new HashMap<>();
+        if (!transactionIds.isEmpty()) {
+            for (Transaction transaction : transactionRepo.findAllWithOwnerByIdIn(transactionIds)) {
+                transactions.put(transaction.getId(), transaction);
+            }
+        }
+
+        TransactionDeltas deltas = new TransactionDeltas();
+        List<TransactionBatchResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            TransactionBatchOperation operation = operations.get(i);
+            TransactionBatchResult.TransactionBatchResultBuilder result = TransactionBatchResult.builder().index(i);
+            if (operation == null) {
+                results.add(result.status(400).error("Operation is required").build());
+                continue;
+            }
+            result.op(operation.getOp()).id(operation.getId());
+
+            switch (operation.getOp() == null ? "" : operation.getOp()) {
+                case "create" -> {
+                    Long ownerId = operation.getCategoryId() == null ? null : categoryOwners.get(operation.getCategoryId());
+                    String error = validate(operation);
+                    if (error != null) {
+                        result.status(422).error(error);
+                    } else if (ownerId == null) {
+                        result.status(404).error("Category with id " + operation.getCategoryId() + " not found");
+                    } else if (!admin && !ownerId.equals(currentUser.getId())) {
+                        result.status(403).error("You can add transactions only to your own categories!");
+                    } else {
+                        Transaction transaction = new Transaction();
+                        transaction.setCategory(entityManager.getReference(Category.class, operation.getCategoryId()));
+                        transaction.setDescription(operation.getDescription());
+                        transaction.setAmount(operation.getAmount());
+                        transaction.setDate(operation.getDate());
+                        entityManager.persist(transaction);
+                        deltas.created(ownerId, transaction);
+                        result.status(201).id(transaction.getId());
+                    }
+                }
+                case "update" -> {
+                    Transaction transaction = transactions.get(operation.getId());
+                    String error = validate(operation);
+                    String versionError = transaction == null ? null : versionError(operation, transaction);
+                    if (transaction == null) {
+                        result.status(404).error("Transaction with id " + operation.getId() + " not found");
+                    } else if (!admin && !isOwner(transaction, currentUser)) {
+                        result.status(403).error("You can update only your own transactions!");
+                    } else if (versionError != null) {
+                        result.status(operation.getVersion() == null ? 428 : 412).error(versionError);
+                    } else if (error != null) {
+                        result.status(422).error(error);
+                    } else {
+                        // flushed together with the other statements at commit
+                        LocalDate previousDate = transaction.getDate();
+                        BigDecimal previousAmount = transaction.getAmount();
+                        transaction.setAmount(operation.getAmount());
+                        transaction.setDate(operation.getDate());
+                        transaction.setDescription(operation.getDescription());
+                        deltas.updated(ownerOf(transaction), transaction, previousDate, previousAmount);
+                        result.status(200);
+                    }
+                }
+                case "delete" -> {
+                    Transaction transaction = transactions.remove(operation.getId());
+                    String versionError = transaction == null ? null : versionError(operation, transaction);
+                    if (transaction == null) {
+                        result.status(404).error("Transaction with id " + operation.getId() + " not found");
+                    } else if (!admin && !isOwner(transaction, currentUser)) {
+                        transactions.put(transaction.getId(), transaction);
+                        result.status(403).error("You can delete only your own transactions!");
+                    } else if (versionError != null) {
+                        transactions.put(transaction.getId(), transaction);
+                        result.status(operation.getVersion() == null ? 428 : 412).error(versionError);
+                    } else {
+                        entityManager.remove(transaction);
+                        deltas.deleted(ownerOf(transaction), transaction);
+                        result.status(204);
+                    }
+                }
+                default -> result.status(400).error("Op must be one of 'create', 'update' or 'delete'");
+            }
+            results.add(result.build());
+        }
+
+        ledgerService.record(deltas);
+        return results;
+    }
+
+    // answered with 428 (no version) or 412 (stale version), like If-Match on the single-item endpoints
+    private String versionError(TransactionBatchOperation operation, Transaction transaction) {
+        if (operation.getVersion() == null) {
+            return versionGuard.isRequired() ? "Version of the transaction as last read is required" : null;
+        }
+        if (!VersionGuard.matches(operation.getVersion(), transaction.getVersion())) {
+            return VersionGuard.staleMessage("Transaction", transaction.getId(), transaction.getVersion());
+        }
+        return null;
+    }
+
+    private static boolean isOwner(Transaction transaction, User user) {
+        return ownerOf(transaction).equals(user.getId());
+    }
+
+    private static Long ownerOf(Transaction transaction) {
+        return transaction.getCategory().getBudget().getUser().getId();
+    }
+
+    // same rules as the @Valid annotations on Transaction
+    private static String validate(TransactionBatchOperation operation) {
+        if (operation.getDescription() == null || operation.getDescription().isBlank()) {
+            return "Description is required";
+        }
+        if (operation.getAmount() == null) {
+            return "Amount is required";
+        }
+        if (operation.getAmount().signum() <= 0) {
+            return "Amount must be positive";
+        }
+        if (operation.getDate() == null) {
+            return "Date is required";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// changes made by one unit of work, collected so every derived table gets one statement per key
+public final class TransactionDeltas {
+
+    // sorted, so concurrent writers lock balance rows in the same order
+    private final Map<Long, Change> categories = new TreeMap<>();
+    private final Map<DayKey, Change> days = new TreeMap<>();
+    private final List<Document> documents = new ArrayList<>();
+
+    // userId is the owner of the transaction's category, not necessarily the caller (admins)
+    public void created(Long userId, Transaction transaction) {
+        add(userId, transaction.getCategory().getId(), transaction.getDate(), transaction.getAmount(), 1);
+        documents.add(Document.of(userId, transaction));
+    }
+
+    // the old values leave their day, the new values enter theirs
+    public void updated(Long userId, Transaction transaction, LocalDate oldDate, BigDecimal oldAmount) {
+        Long categoryId = transaction.getCategory().getId();
+        add(userId, categoryId, oldDate, oldAmount.negate(), -1);
+        add(userId, categoryId, transaction.getDate(), transaction.getAmount(), 1);
+        documents.add(Document.of(userId, transaction));
+    }
+
+    public void deleted(Long userId, Transaction transaction) {
+        add(userId, transaction.getCategory().getId(), transaction.getDate(), transaction.getAmount().negate(), -1);
+        documents.add(new Document(userId, transaction.getId(), null, null));
+    }
+
+    public boolean isEmpty() {
+        return documents.isEmpty();
+    }
+
+    private void add(Long userId, Long categoryId, LocalDate date, BigDecimal amount, long count) {
+        categories.computeIfAbsent(categoryId, id -> new Change()).add(amount, count);
+        days.computeIfAbsent(new DayKey(userId, categoryId, date), key -> new Change()).add(amount, count);
+    }
+
+    Set<Long> userIds() {
+        Set<Long> userIds = new HashSet<>();
+        days.keySet().forEach(day -> userIds.add(day.userId()));
+        return userIds;
+    }
+
+    Map<Long, Change> categories() {
+        return categories;
+    }
+
+    Map<DayKey, Change> days() {
+        return days;
+    }
+
+    List<Document> documents() {
+        return documents;
+    }
+
+    // searchable state of one transaction after the write; date and description are null once it is deleted
+    record Document(Long userId, Long transactionId, LocalDate date, String description) {
+        static Document of(Long userId, Transaction transaction) {
+            return new Document(userId, transaction.getId(), transaction.getDate(), transaction.getDescription());
+        }
+
+        boolean isDeleted() {
+            return date == null;
+        }
+    }
+
+    record DayKey(Long userId, Long categoryId, LocalDate date) implements Comparable<DayKey> {
+        @Override
+        public int compareTo(DayKey other) {
+            int result = categoryId.compareTo(other.categoryId);
+            if (result == 0) {
+                result = userId.compareTo(other.userId);
+            }
+            return result != 0 ? result : date.compareTo(other.date);
+        }
+    }
+
+    static final class Change {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+
+        void add(BigDecimal amount, long count) {
+            this.amount = this.amount.add(amount);
+            this.count += count;
+        }
+
+        BigDecimal amount() {
+            return amount;
+        }
+
+        long count() {
+            return count;
+        }
+
+        boolean isZero() {
+            return amount.signum() == 0 && count == 0;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.ImportStatus;
+import com.budgettracker.spendex.exceptions.ForbiddenException;
+import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
+import com.budgettracker.spendex.exceptions.TooManyRequestsException;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.util.Csv;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// CSV import: columns date, amount, description, category_id (any order, header row required)
+@Service
+public class TransactionImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Long NO_OWNER = -1L;
+
+    private final OwnershipIndex ownershipIndex;
+    private final CurrentUserResolver currentUserResolver;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerService ledgerService;
+
+    @Value("${spendex.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${spendex.import.threads:1}")
+    private int threads;
+
+    @Value("${spendex.import.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${spendex.import.retention:P1D}")
+    private Duration retention;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    public TransactionImportService(OwnershipIndex ownershipIndex, CurrentUserResolver currentUserResolver,
+                                    EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                    LedgerService ledgerService) {
+        this.ownershipIndex = ownershipIndex;
+        this.currentUserResolver = currentUserResolver;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.ledgerService = ledgerService;
+    }
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "transaction-import");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ImportStatus startImport(MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        User currentUser = currentUserResolver.get();
+
+        // the upload is gone once the request ends, keep a copy for the background job
+        Path copy = Files.createTempFile("transaction-import-", ".csv");
+        boolean started = false;
+        try {
+            file.transferTo(copy);
+
+            Job job = new Job(UUID.randomUUID().toString(), currentUser.getId());
+            jobs.put(job.id, job);
+            try {
+                executor.execute(() -> run(job, copy, currentUser));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.id);
+                throw new TooManyRequestsException("Too many imports in progress, please retry later");
+            }
+            started = true;
+            return job.toStatus();
+        } finally {
+            // once started the job deletes the copy itself
+            if (!started) {
+                Files.deleteIfExists(copy);
+            }
+        }
+    }
+
+    public ImportStatus getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import", jobId);
+        }
+
+        User currentUser = currentUserResolver.get();
+        if (currentUser.getRole() != Role.ADMIN && !job.userId.equals(currentUser.getId())) {
+            throw new ForbiddenException("You can view only your own imports!");
+        }
+        return job.toStatus();
+    }
+
+    @Scheduled(fixedDelayString = "PT1H")
+    public void forgetFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job, Path file, User user) {
+        job.state = "RUNNING";
+        // categoryId -> owner id, looked up once per category, not per row
+        Map<Long, Long> categoryOwners = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("File has no header row");
+            }
+            Map<String, Integer> columns = columns(header);
+            job.lastCommittedLine = 1;
+
+            List<Transaction> chunk = new ArrayList<>(chunkSize);
+            String line;
+            long lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                job.processed.incrementAndGet();
+
+                try {
+                    chunk.add(parse(Csv.parseLine(line), columns, categoryOwners, user));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    job.reject(lineNumber, e.getMessage());
+                    continue;
+                }
+
+                if (chunk.size() == chunkSize) {
+                    persist(chunk, categoryOwners);
+                    job.committed(chunk.size(), lineNumber);
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                persist(chunk, categoryOwners);
+            }
+            job.committed(chunk.size(), lineNumber);
+            job.finish("COMPLETED");
+        } catch (Exception e) {
+            // earlier chunks stay committed, the status tells the client where to pick up
+            job.errors.add("Import stopped: " + e.getMessage() + "; rows up to line " + job.lastCommittedLine
+                    + " are saved");
+            job.finish("FAILED");
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // temp file, the OS cleans it up eventually
+            }
+        }
+    }
+
+    // one database transaction per chunk, so the import as a whole is not atomic; inserts are sent as JDBC batches (hibernate.jdbc.batch_size)
+    private void persist(List<Transaction> chunk, Map<Long, Long> categoryOwners) {
+        transactionTemplate.executeWithoutResult(status -> {
+            TransactionDeltas deltas = new TransactionDeltas();
+            for (Transaction transaction : chunk) {
+                Long categoryId = transaction.getCategory().getId();
+                // ownership was already checked, a reference is enough for the foreign key
+                transaction.setCategory(entityManager.getReference(Category.class, categoryId));
+                entityManager.persist(transaction);
+                deltas.created(categoryOwners.get(categoryId), transaction);
+            }
+            ledgerService.record(deltas);
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private Transaction parse(List<String> fields, Map<String, Integer> columns,
+                              Map<Long, Long> categoryOwners, User user) {
+        String description = field(fields, columns, "description");
+        if (description.isBlank()) {
+            throw new IllegalArgumentException("Description is required");
+        }
+
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(field(fields, columns, "amount"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Amount is not a number");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        LocalDate date = LocalDate.parse(field(fields, columns, "date"));
+
+        Long categoryId;
+        try {
+            categoryId = Long.valueOf(field(fields, columns, "category_id"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("category_id is not a number");
+        }
+        Long ownerId = categoryOwners.computeIfAbsent(categoryId, id -> {
+            Long owner = ownershipIndex.categoryOwner(id);
+            return owner == null ? NO_OWNER : owner;
+        });
+        if (ownerId.equals(NO_OWNER) || (user.getRole() != Role.ADMIN && !ownerId.equals(user.getId()))) {
+            throw new IllegalArgumentException("Category " + categoryId + " does not exist or is not yours");
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setDescription(description);
+        transaction.setAmount(amount);
+        transaction.setDate(date);
+        Category category = new Category();
+        category.setId(categoryId);
+        transaction.setCategory(category);
+        return transaction;
+    }
+
+    private static Map<String, Integer> columns(String header) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = Csv.parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("date", "amount", "description", "category_id")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Missing column " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        if (index >= fields.size()) {
+            throw new IllegalArgumentException("Missing value for " + name);
+        }
+        return fields.get(index).trim();
+    }
+
+    private static class Job {
+        private final String id;
+        private final Long userId;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile long lastCommittedLine;
+        private volatile String state = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+
+        private Job(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        private void reject(long lineNumber, String message) {
+            rejected.incrementAndGet();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + lineNumber + ": " + message);
+            }
+        }
+
+        private void committed(int rows, long throughLine) {
+            imported.addAndGet(rows);
+            lastCommittedLine = throughLine;
+        }
+
+        private void finish(String finalState) {
+            finishedAt = LocalDateTime.now();
+            state = finalState;
+        }
+
+        private ImportStatus toStatus() {
+            List<String> errorsCopy;
+            synchronized (errors) {
+                errorsCopy = List.copyOf(errors);
+            }
+            return ImportStatus.builder()
+                    .id(id)
+                    .state(state)
+                    .processedRows(processed.get())
+                    .importedRows(imported.get())
+                    .rejectedRows(rejected.get())
+                    .lastCommittedLine(lastCommittedLine)
+                    .errors(errorsCopy)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
@@ -1,92 +1,232 @@
 package com.budgettracker.spendex.services;
 
-import com.budgettracker.spendex.exceptions.ForbiddenException;
-import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
-import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.dto.CursorPage;
+import com.budgettracker.spendex.dto.ExportFormat;
+import com.budgettracker.spendex.dto.TransactionExportRow;
+import com.budgettracker.spendex.dto.TransactionPatch;
+import com.budgettracker.spendex.dto.TransactionCursor;
+import com.budgettracker.spendex.dto.TransactionView;
 import com.budgettracker.spendex.models.Transaction;
 import com.budgettracker.spendex.models.User;
 import com.budgettracker.spendex.repos.CategoryRepo;
 import com.budgettracker.spendex.repos.TransactionRepo;
-import com.budgettracker.spendex.repos.UserRepo;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import com.budgettracker.spendex.util.Csv;
+import com.budgettracker.spendex.util.TextIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Transactional(readOnly = true)
 public class TransactionService {
 
     private final TransactionRepo transactionRepo;
     private final CategoryRepo categoryRepo;
-    private final UserRepo userRepo;
+    private final CurrentUserResolver currentUserResolver;
+    private final ObjectMapper objectMapper;
+    private final LedgerService ledgerService;
+    private final SearchIndexService searchIndexService;
+    private final OwnershipResolver ownershipResolver;
+    private final VersionGuard versionGuard;
+
+    @Value("${spendex.pagination.default-page-size:50}")
+    private int defaultPageSize;
 
-    public TransactionService(TransactionRepo transactionRepo, CategoryRepo categoryRepo, UserRepo userRepo) {
+    @Value("${spendex.pagination.max-page-size:200}")
+    private int maxPageSize;
+
+    public TransactionService(TransactionRepo transactionRepo, CategoryRepo categoryRepo, CurrentUserResolver currentUserResolver, ObjectMapper objectMapper, LedgerService ledgerService, SearchIndexService searchIndexService, OwnershipResolver ownershipResolver, VersionGuard versionGuard) {
         this.transactionRepo = transactionRepo;
         this.categoryRepo = categoryRepo;
-        this.userRepo = userRepo;
-    }
-
-    private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepo.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        this.currentUserResolver = currentUserResolver;
+        this.objectMapper = objectMapper;
+        this.ledgerService = ledgerService;
+        this.searchIndexService = searchIndexService;
+        this.ownershipResolver = ownershipResolver;
+        this.versionGuard = versionGuard;
     }
 
+    @Transactional
     public Transaction createTransaction(Transaction transaction) {
-        var category = categoryRepo.findById(transaction.getCategory().getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Category", transaction.getCategory().getId()));
-
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN &&
-                !category.getBudget().getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can add transactions only to your own categories!");
-        }
-
-        return transactionRepo.save(transaction);
+        Long categoryId = transaction.getCategory().getId();
+        Long ownerId = ownershipResolver.categoryOwner(categoryId, "You can add transactions only to your own categories!");
+
+        // ownership is settled, a reference is enough for the foreign key
+        transaction.setCategory(categoryRepo.getReferenceById(categoryId));
+        Transaction saved = transactionRepo.save(transaction);
+        TransactionDeltas deltas = new TransactionDeltas();
+        deltas.created(ownerId, saved);
+        ledgerService.record(deltas);
+        return saved;
     }
 
     public Transaction getTransaction(Long id) {
-        Transaction transaction = transactionRepo.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Transaction", id));
+        return ownershipResolver.transaction(id, "You can view only your own transactions!");
+    }
+
+    // expectedVersion comes from If-Match, null skips the check
+    @Transactional
+    public Transaction updateTransaction(Long id, Transaction details, Long expectedVersion) {
+        return change(id, expectedVersion, transaction -> {
+            transaction.setAmount(details.getAmount());
+            transaction.setDate(details.getDate());
+            transaction.setDescription(details.getDescription());
+        });
+    }
 
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN &&
-                !transaction.getCategory().getBudget().getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can view only your own transactions!");
+    @Transactional
+    public Transaction patchTransaction(Long id, TransactionPatch patch, Long expectedVersion) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be provided");
         }
+        return change(id, expectedVersion, transaction -> {
+            if (patch.amount() != null) {
+                transaction.setAmount(patch.amount());
+            }
+            if (patch.date() != null) {
+                transaction.setDate(patch.date());
+            }
+            if (patch.description() != null) {
+                transaction.setDescription(patch.description());
+            }
+        });
+    }
 
+    // the row is flushed at commit, only the changed columns and only while its version is unchanged
+    private Transaction change(Long id, Long expectedVersion, Consumer<Transaction> changes) {
+        Transaction transaction = getTransaction(id);
+        versionGuard.check(expectedVersion, transaction.getVersion(), "Transaction", id);
+        BigDecimal previousAmount = transaction.getAmount();
+        LocalDate previousDate = transaction.getDate();
+
+        changes.accept(transaction);
+        TransactionDeltas deltas = new TransactionDeltas();
+        deltas.updated(transaction.getCategory().getBudget().getUser().getId(), transaction, previousDate, previousAmount);
+        ledgerService.record(deltas);
         return transaction;
     }
 
-    public Transaction updateTransaction(Long id, Transaction details) {
+    @Transactional
+    public void deleteTransaction(Long id, Long expectedVersion) {
         Transaction transaction = getTransaction(id);
+        versionGuard.check(expectedVersion, transaction.getVersion(), "Transaction", id);
+        transactionRepo.delete(transaction);
+        TransactionDeltas deltas = new TransactionDeltas();
+        deltas.deleted(transaction.getCategory().getBudget().getUser().getId(), transaction);
+        ledgerService.record(deltas);
+    }
+
+    public List<TransactionView> getTransactionsByCategory(Long categoryId) {
+        ownershipResolver.categoryOwner(categoryId, "You cannot view transactions in this category!");
 
-        transaction.setAmount(details.getAmount());
-        transaction.setDate(details.getDate());
-        transaction.setDescription(details.getDescription());
-        return transactionRepo.save(transaction);
+        return transactionRepo.findViewsByCategoryId(categoryId);
     }
 
-    public void deleteTransaction(Long id) {
-        Transaction transaction = getTransaction(id);
-        transactionRepo.delete(transaction);
+    // full-text search over the current user's descriptions, newest first
+    public CursorPage<TransactionView> searchTransactions(String query, String cursor, Integer size) {
+        if (query == null || TextIndex.tokenize(query).length == 0) {
+            throw new IllegalArgumentException("Search query must contain at least one letter or digit");
+        }
+        int pageSize = pageSize(size);
+        TransactionCursor after = cursor == null || cursor.isBlank() ? null : TransactionCursor.decode(cursor);
+
+        User currentUser = currentUserResolver.get();
+        List<Long> ids = searchIndexService.search(currentUser.getId(), query, after, pageSize + 1);
+
+        // one query for the page, put back into ranking order
+        Map<Long, TransactionView> found = new HashMap<>();
+        transactionRepo.findViewsByIdIn(ids).forEach(transaction -> found.put(transaction.id(), transaction));
+        List<TransactionView> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TransactionView transaction = found.get(id);
+            if (transaction != null) {
+                rows.add(transaction);
+            }
+        }
+        return toPage(rows, pageSize);
     }
 
-    public List<Transaction> getAllTransactions() {
-        return transactionRepo.findAll(); // tik admin
+    public CursorPage<TransactionView> getTransactionsByCategoryPage(Long categoryId, String cursor, Integer size) {
+        ownershipResolver.categoryOwner(categoryId, "You cannot view transactions in this category!");
+
+        int pageSize = pageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<TransactionView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionRepo.findViewPageByCategoryId(categoryId, limit);
+        } else {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            rows = transactionRepo.findViewPageByCategoryIdAfter(categoryId, after.date(), after.id(), limit);
+        }
+        return toPage(rows, pageSize);
     }
 
-    public List<Transaction> getTransactionsByCategory(Long categoryId) {
-        var category = categoryRepo.findById(categoryId)
-                .orElseThrow(() -> new ResourceNotFoundException("Category", categoryId));
+    // streams the current user's transactions without materializing them, heap use does not grow with history
+    public void exportTransactions(ExportFormat format, OutputStream out) throws IOException {
+        User currentUser = currentUserResolver.get();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
 
-        User currentUser = getCurrentUser();
-        if (currentUser.getRole() != Role.ADMIN &&
-                !category.getBudget().getUser().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You cannot view transactions in this category!");
+        if (format == ExportFormat.CSV) {
+            writer.write("id,date,amount,type,category_id,category,description\n");
         }
 
-        return transactionRepo.findByCategory(category);
+        try (Stream<TransactionExportRow> rows = transactionRepo.streamExportRowsByUserId(currentUser.getId())) {
+            rows.forEach(row -> {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        writer.write(Csv.escape(row.id()) + ',' + Csv.escape(row.date()) + ',' + Csv.escape(row.amount()) + ','
+                                + Csv.escape(row.categoryType()) + ',' + Csv.escape(row.categoryId()) + ','
+                                + Csv.escape(row.categoryName()) + ',' + Csv.escape(row.description()) + '\n');
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private int pageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    // one extra row was fetched to find out whether another page exists
+    private CursorPage<TransactionView> toPage(List<TransactionView> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<TransactionView> items = rows.subList(0, pageSize);
+        TransactionView last = items.get(pageSize - 1);
+        return new CursorPage<>(items, new TransactionCursor(last.date(), last.id()).encode());
     }
 }
@@ -4,32 +4,35 @@ import com.budgettracker.spendex.dto.UserProfileUpdateDTO;
 import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
 import com.budgettracker.spendex.models.User;
 import com.budgettracker.spendex.repos.UserRepo;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-
-import java.util.List;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class UserService {
 
     private final UserRepo userRepo;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final CurrentUserResolver currentUserResolver;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final RefreshTokenService refreshTokenService;
+    private final TransactionTemplate transactionTemplate;
 
-    public UserService(UserRepo userRepo, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepo userRepo, PasswordEncoder passwordEncoder, PrincipalCache principalCache, CurrentUserResolver currentUserResolver, TokenVersionRegistry tokenVersionRegistry, RefreshTokenService refreshTokenService, TransactionTemplate transactionTemplate) {
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
-    }
-
-    private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepo.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        this.principalCache = principalCache;
+        this.currentUserResolver = currentUserResolver;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.refreshTokenService = refreshTokenService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public User getProfile() {
-        return getCurrentUser();
+        // in stateless mode the principal is built from token claims, so fetch the full profile
+        return principalCache.get(currentUserResolver.get().getEmail());
     }
 
     public User updateProfile(UserProfileUpdateDTO dto) {
@@ -40,33 +43,50 @@ public class UserService {
             throw new IllegalArgumentException("At least one field must be provided");
         }
 
-        User currentUser = getCurrentUser();
-
-        if (dto.getFirstName() != null && !dto.getFirstName().isBlank()) {
-            currentUser.setFirstName(dto.getFirstName());
-        }
-
-        if (dto.getLastName() != null && !dto.getLastName().isBlank()) {
-            currentUser.setLastName(dto.getLastName());
-        }
-
-        if (dto.getPassword() != null && !dto.getPassword().isBlank()) {
-            currentUser.setPassword(passwordEncoder.encode(dto.getPassword()));
-        }
-
-        return userRepo.save(currentUser);
+        // hashed before the transaction starts, no pooled connection waits on it
+        String password = dto.getPassword() != null && !dto.getPassword().isBlank()
+                ? passwordEncoder.encode(dto.getPassword())
+                : null;
+        Long userId = currentUserResolver.get().getId();
+
+        User saved = transactionTemplate.execute(status -> {
+            // the cached principal is shared between requests, so edit a freshly loaded copy
+            User currentUser = userRepo.findById(userId)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+
+            if (dto.getFirstName() != null && !dto.getFirstName().isBlank()) {
+                currentUser.setFirstName(dto.getFirstName());
+            }
+
+            if (dto.getLastName() != null && !dto.getLastName().isBlank()) {
+                currentUser.setLastName(dto.getLastName());
+            }
+
+            if (password != null) {
+                currentUser.setPassword(password);
+            }
+            return currentUser;
+        });
+        principalCache.evict(saved.getEmail());
+        return saved;
     }
 
-
-
+    // user row and refresh tokens change together; caches are touched once that has committed, so a
+    // concurrent lookup cannot put the old state back
     public User toggleUser(Long userId, boolean enabled) {
-        User user = userRepo.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", userId));
-        user.setEnabled(enabled);
-        return userRepo.save(user);
-    }
-
-    public List<User> getAllUsers() {
-        return userRepo.findAll();
+        User saved = transactionTemplate.execute(status -> {
+            User user = userRepo.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User", userId));
+            user.setEnabled(enabled);
+            if (!enabled) {
+                // revokes access tokens that are already out there
+                user.setTokenVersion(user.getTokenVersion() + 1);
+                refreshTokenService.revokeAllForUser(user.getId());
+            }
+            return user;
+        });
+        principalCache.evict(saved.getEmail());
+        tokenVersionRegistry.update(saved.getId(), saved.getTokenVersion());
+        return saved;
     }
 }
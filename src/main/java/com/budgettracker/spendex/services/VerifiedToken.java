@@ -0,0 +1,57 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.Role;
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// immutable result of a single signature check, safe to share between requests
+public record VerifiedToken(String subject, Instant issuedAt, Instant expiresAt, Map<String, Object> claims) {
+
+    static VerifiedToken from(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                Collections.unmodifiableMap(new HashMap<>(claims)));
+    }
+
+    public boolean isExpired() {
+        return expiresAt != null && !expiresAt.isAfter(Instant.now());
+    }
+
+    // refresh tokens carry an id and a family (RefreshTokenService.issue), access tokens neither
+    public boolean isRefreshToken() {
+        return claims.containsKey(Claims.ID) || claims.containsKey(RefreshTokenService.FAMILY_CLAIM);
+    }
+
+    // claims written by JwtService.generateToken for stateless authentication
+    public Long userId() {
+        return claims.get(JwtService.USER_ID_CLAIM) instanceof Number id ? id.longValue() : null;
+    }
+
+    public Integer tokenVersion() {
+        return claims.get(JwtService.TOKEN_VERSION_CLAIM) instanceof Number version ? version.intValue() : null;
+    }
+
+    public String session() {
+        return claims.get(JwtService.SESSION_CLAIM) instanceof String family ? family : null;
+    }
+
+    // "role" holds the serialized authorities, e.g. [{"authority": "ROLE_USER"}]
+    public Role role() {
+        if (claims.get("role") instanceof Collection<?> authorities) {
+            for (Object authority : authorities) {
+                if (authority instanceof Map<?, ?> map && map.get("authority") instanceof String name
+                        && name.startsWith("ROLE_")) {
+                    return Role.valueOf(name.substring(5));
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.exceptions.PreconditionFailedException;
+import com.budgettracker.spendex.exceptions.PreconditionRequiredException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// optimistic concurrency for budgets, categories and transactions: the ETag of a row is its version, a write
+// carrying If-Match only goes through while the stored version is still the one the client read.
+// A write that loses the race after this check is caught by the @Version column at commit (409)
+@Component
+public class VersionGuard {
+
+    @Value("${spendex.concurrency.require-if-match:false}")
+    private boolean requireIfMatch;
+
+    public static String etag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // version an If-Match header asks for; null means any ("*", or no header while If-Match is optional)
+    public Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            if (requireIfMatch) {
+                throw new PreconditionRequiredException("If-Match with the ETag of the last read is required");
+            }
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if ("*".equals(tag)) {
+            return null;
+        }
+        // If-Match uses the strong comparison, a weak tag never matches
+        if (tag.startsWith("W/")) {
+            throw new PreconditionFailedException("If-Match needs a strong entity tag");
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"' || tag.contains(",")) {
+            throw new IllegalArgumentException("If-Match must be a single entity tag, e.g. \"3\"");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown entity tag " + tag);
+        }
+    }
+
+    public boolean isRequired() {
+        return requireIfMatch;
+    }
+
+    public static boolean matches(Long expected, Long current) {
+        return expected == null || expected.equals(current);
+    }
+
+    public static String staleMessage(String resource, Long id, Long current) {
+        return resource + " with id " + id + " has changed since it was read, current version is " + current;
+    }
+
+    public void check(Long expected, Long current, String resource, Long id) {
+        if (!matches(expected, current)) {
+            throw new PreconditionFailedException(staleMessage(resource, id, current));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.budgettracker.spendex.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+// long -> long hash map without boxing, for positive keys (database ids). Split into segments with their own
+// lock; reads are optimistic and only take the read lock when a writer got in between.
+// Bounded: a segment that reaches its share of maxEntries is emptied and refills from its callers
+public final class ConcurrentLongLongMap {
+
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_SLOTS = 64;
+    private static final long EMPTY = 0L;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final int maxEntriesPerSegment;
+
+    public ConcurrentLongLongMap(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntriesPerSegment = Math.max(1, maxEntries >> SEGMENT_BITS);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    // NO_VALUE when absent
+    public long get(long key) {
+        if (key <= 0) {
+            return NO_VALUE;
+        }
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        long value = find(segment.table, key, hash);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                value = find(segment.table, key, hash);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public void put(long key, long value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive");
+        }
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.put(key, hash, value, maxEntriesPerSegment);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long key) {
+        // 0 marks an empty slot, it must not be mistaken for a stored key
+        if (key <= 0) {
+            return;
+        }
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.remove(key, hash);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    private static long hash(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // keys and values interleaved in one array, so an optimistic reader never sees two arrays of different sizes;
+    // the probe count is capped in case a concurrent writer is moving entries around
+    private static long find(long[] table, long key, long hash) {
+        int mask = (table.length >> 1) - 1;
+        int slot = slot(hash, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = table[slot << 1];
+            if (current == key) {
+                return table[(slot << 1) + 1];
+            }
+            if (current == EMPTY) {
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private long[] table = new long[INITIAL_SLOTS * 2];
+        private int size;
+
+        void put(long key, long hash, long value, int maxEntries) {
+            int mask = (table.length >> 1) - 1;
+            int slot = slot(hash, mask);
+            while (table[slot << 1] != EMPTY) {
+                if (table[slot << 1] == key) {
+                    table[(slot << 1) + 1] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (size >= maxEntries) {
+                table = new long[INITIAL_SLOTS * 2];
+                size = 0;
+            } else if ((size + 1) * 2 > mask + 1) {
+                resize();
+            } else {
+                table[slot << 1] = key;
+                table[(slot << 1) + 1] = value;
+                size++;
+                return;
+            }
+            insert(table, key, hash, value);
+            size++;
+        }
+
+        // backward-shift deletion, linear probing needs no tombstones then
+        void remove(long key, long hash) {
+            int mask = (table.length >> 1) - 1;
+            int hole = slot(hash, mask);
+            while (table[hole << 1] != key) {
+                if (table[hole << 1] == EMPTY) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+
+            int next = (hole + 1) & mask;
+            while (table[next << 1] != EMPTY) {
+                int ideal = slot(hash(table[next << 1]), mask);
+                // the entry may move into the hole only if the hole lies between its ideal slot and where it is
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    table[hole << 1] = table[next << 1];
+                    table[(hole << 1) + 1] = table[(next << 1) + 1];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            table[hole << 1] = EMPTY;
+            table[(hole << 1) + 1] = 0L;
+            size--;
+        }
+
+        // fills a new array and publishes it in one write
+        private void resize() {
+            long[] resized = new long[table.length * 2];
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != EMPTY) {
+                    insert(resized, table[i], hash(table[i]), table[i + 1]);
+                }
+            }
+            table = resized;
+        }
+
+        private static void insert(long[] table, long key, long hash, long value) {
+            int mask = (table.length >> 1) - 1;
+            int slot = slot(hash, mask);
+            while (table[slot << 1] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot << 1] = key;
+            table[(slot << 1) + 1] = value;
+        }
+    }
+}
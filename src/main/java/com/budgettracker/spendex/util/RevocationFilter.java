@@ -0,0 +1,68 @@
+package com.budgettracker.spendex.util;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// bloom filter in front of an exact set - the usual "not revoked" answer never touches the set
+public class RevocationFilter {
+
+    private static final int HASHES = 4;
+
+    private final AtomicLongArray bits;
+    private final int numBits;
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+
+    public RevocationFilter(int numBits) {
+        this.numBits = Math.max(64, numBits);
+        this.bits = new AtomicLongArray((this.numBits + 63) / 64);
+    }
+
+    public RevocationFilter(int numBits, Collection<String> ids) {
+        this(numBits);
+        ids.forEach(this::add);
+    }
+
+    public void add(String id) {
+        int h1 = id.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            long mask = 1L << (bit & 63);
+            int word = bit >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+        revoked.add(id);
+    }
+
+    public boolean isRevoked(String id) {
+        int h1 = id.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return revoked.contains(id);
+    }
+
+    public Set<String> ids() {
+        return revoked;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h | 1;
+    }
+}
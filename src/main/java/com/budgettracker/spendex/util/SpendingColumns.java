@@ -0,0 +1,155 @@
+package com.budgettracker.spendex.util;
+
+import java.util.Arrays;
+
+// one user's transactions as parallel primitive arrays sorted by date; immutable once built, safe to share
+public final class SpendingColumns {
+
+    private final int size;
+    private final int[] days;          // epoch days, ascending
+    private final long[] amounts;      // minor units (cents)
+    private final int[] categories;    // index into categoryIds
+    private final long[] categoryIds;  // distinct category ids, ascending
+    private final boolean[] income;    // per category index: income, otherwise expense
+    private final long[] expenseSums;  // expenseSums[i] = expense amounts[0] + ... + amounts[i - 1]
+    private final long[] incomeSums;   // the same over the income rows
+
+    private SpendingColumns(int size, int[] days, long[] amounts, int[] categories, long[] categoryIds,
+                            boolean[] income) {
+        this.size = size;
+        this.days = days;
+        this.amounts = amounts;
+        this.categories = categories;
+        this.categoryIds = categoryIds;
+        this.income = income;
+        this.expenseSums = new long[size + 1];
+        this.incomeSums = new long[size + 1];
+        for (int i = 0; i < size; i++) {
+            boolean incomeRow = income[categories[i]];
+            expenseSums[i + 1] = expenseSums[i] + (incomeRow ? 0 : amounts[i]);
+            incomeSums[i + 1] = incomeSums[i] + (incomeRow ? amounts[i] : 0);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int categoryCount() {
+        return categoryIds.length;
+    }
+
+    public long categoryId(int index) {
+        return categoryIds[index];
+    }
+
+    public boolean isIncome(int index) {
+        return income[index];
+    }
+
+    // -1 when the user has no transaction in that category
+    public int categoryIndex(long categoryId) {
+        int index = Arrays.binarySearch(categoryIds, categoryId);
+        return index < 0 ? -1 : index;
+    }
+
+    // first row with day >= fromDay
+    public int lowerBound(int fromDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < fromDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // first row with day > toDay
+    public int upperBound(int toDay) {
+        return toDay == Integer.MAX_VALUE ? size : lowerBound(toDay + 1);
+    }
+
+    // O(log n): two binary searches and a subtraction
+    public long expenseSum(int fromDay, int toDay) {
+        return expenseSums[upperBound(toDay)] - expenseSums[lowerBound(fromDay)];
+    }
+
+    public long incomeSum(int fromDay, int toDay) {
+        return incomeSums[upperBound(toDay)] - incomeSums[lowerBound(fromDay)];
+    }
+
+    public int count(int fromDay, int toDay) {
+        return Math.max(0, upperBound(toDay) - lowerBound(fromDay));
+    }
+
+    // totals per category index within [fromDay, toDay]; categoryMask null = all categories,
+    // amounts outside [minAmount, maxAmount] are skipped. Writes into the caller's arrays, allocates nothing
+    public void groupByCategory(int fromDay, int toDay, boolean[] categoryMask, long minAmount, long maxAmount,
+                                long[] totals, int[] counts) {
+        int end = upperBound(toDay);
+        for (int i = lowerBound(fromDay); i < end; i++) {
+            int category = categories[i];
+            long amount = amounts[i];
+            if ((categoryMask == null || categoryMask[category]) && amount >= minAmount && amount <= maxAmount) {
+                totals[category] += amount;
+                counts[category]++;
+            }
+        }
+    }
+
+    // rough retained size, used as the cache weight
+    public long estimatedBytes() {
+        return 64L + size * (4L + 8L + 4L + 8L + 8L) + categoryIds.length * (8L + 1L);
+    }
+
+    public static final class Builder {
+        private int size;
+        private int[] days = new int[64];
+        private long[] amounts = new long[64];
+        private long[] rawCategories = new long[64];
+        private boolean[] rawIncome = new boolean[64];
+
+        private Builder() {
+        }
+
+        // rows must arrive in date order; income follows the category, so all rows of one category agree
+        public Builder add(int day, long amount, long categoryId, boolean income) {
+            if (size > 0 && day < days[size - 1]) {
+                throw new IllegalArgumentException("Rows must be added in date order");
+            }
+            if (size == days.length) {
+                int capacity = size * 2;
+                days = Arrays.copyOf(days, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                rawCategories = Arrays.copyOf(rawCategories, capacity);
+                rawIncome = Arrays.copyOf(rawIncome, capacity);
+            }
+            days[size] = day;
+            amounts[size] = amount;
+            rawCategories[size] = categoryId;
+            rawIncome[size] = income;
+            size++;
+            return this;
+        }
+
+        public SpendingColumns build() {
+            long[] categoryIds = Arrays.stream(rawCategories, 0, size).distinct().sorted().toArray();
+            int[] categories = new int[size];
+            boolean[] income = new boolean[categoryIds.length];
+            for (int i = 0; i < size; i++) {
+                categories[i] = Arrays.binarySearch(categoryIds, rawCategories[i]);
+                income[categories[i]] = rawIncome[i];
+            }
+            return new SpendingColumns(size, Arrays.copyOf(days, size), Arrays.copyOf(amounts, size),
+                    categories, categoryIds, income);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.budgettracker.spendex.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// inverted index of one user's transaction descriptions; every query token matches as a prefix
+public class TextIndex {
+
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long postingCount;
+
+    // adds or replaces the document, so applying the same change twice is harmless
+    public void put(long id, int day, String text) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            String[] terms = tokenize(text);
+            docs.put(id, new Doc(day, terms));
+            for (String term : terms) {
+                postings.computeIfAbsent(term, key -> new HashSet<>()).add(id);
+            }
+            postingCount += terms.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ids of documents containing every query token, newest first (day desc, id desc), strictly after the
+    // given position; pass afterDay = Integer.MAX_VALUE to start from the top
+    public List<Long> search(String query, int afterDay, long afterId, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> matches = null;
+            for (String token : tokens) {
+                Set<Long> tokenMatches = new HashSet<>();
+                for (Set<Long> ids : postings.subMap(token, true, token + Character.MAX_VALUE, true).values()) {
+                    tokenMatches.addAll(ids);
+                }
+                if (matches == null) {
+                    matches = tokenMatches;
+                } else {
+                    matches.retainAll(tokenMatches);
+                }
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Long> ranked = new ArrayList<>(matches.size());
+            for (Long id : matches) {
+                int day = docs.get(id).day;
+                if (day < afterDay || (day == afterDay && id < afterId)) {
+                    ranked.add(id);
+                }
+            }
+            ranked.sort((a, b) -> {
+                int result = Integer.compare(docs.get(b).day, docs.get(a).day);
+                return result != 0 ? result : Long.compare(b, a);
+            });
+            return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // rough retained size, used as the cache weight
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return 128L + docs.size() * 96L + postings.size() * 120L + postingCount * 48L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // lower-cased runs of letters and digits, each term once
+    public static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        Collection<String> terms = new HashSet<>();
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term.length() > MAX_TOKEN_LENGTH ? term.substring(0, MAX_TOKEN_LENGTH) : term);
+            }
+        }
+        String[] result = terms.toArray(new String[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void removeUnlocked(long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.terms) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        postingCount -= doc.terms.length;
+    }
+
+    private record Doc(int day, String[] terms) {
+    }
+}
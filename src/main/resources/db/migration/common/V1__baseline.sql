@@ -0,0 +1,49 @@
+-- schema as mapped by the entities of the baseline release, which ran with ddl-auto=update; existing databases
+-- of that release are baselined at V1 and get every later script
+
+create table users (
+    id             bigint generated by default as identity primary key,
+    first_name     varchar(255) not null,
+    last_name      varchar(255) not null,
+    email          varchar(255) not null,
+    password       varchar(255) not null,
+    role           varchar(255) check (role in ('USER', 'ADMIN')),
+    created_at     timestamp(6) not null,
+    updated_at     timestamp(6) not null,
+    enabled        boolean not null,
+    constraint uk_users_email unique (email)
+);
+
+create table budget (
+    id           bigint generated by default as identity primary key,
+    name         varchar(255),
+    description  varchar(255),
+    start_date   date,
+    end_date     date,
+    created_at   timestamp(6) not null,
+    updated_at   timestamp(6) not null,
+    user_id      bigint,
+    constraint fk_budget_user foreign key (user_id) references users (id)
+);
+
+create table category (
+    id          bigint generated by default as identity primary key,
+    name        varchar(255),
+    type        varchar(255),
+    icon_url    varchar(255),
+    created_at  timestamp(6) not null,
+    updated_at  timestamp(6) not null,
+    budget_id   bigint,
+    constraint fk_category_budget foreign key (budget_id) references budget (id)
+);
+
+create table transaction (
+    id           bigint generated by default as identity primary key,
+    description  varchar(255),
+    amount       numeric(38, 2),
+    date         date,
+    created_at   timestamp(6) not null,
+    updated_at   timestamp(6) not null,
+    category_id  bigint,
+    constraint fk_transaction_category foreign key (category_id) references category (id)
+);
@@ -0,0 +1,8 @@
+-- foreign keys are not indexed automatically; these back the ownership joins and per-category listings.
+-- users(email) is already covered by the index behind uk_users_email.
+-- "if not exists" because databases created by ddl-auto are baselined at V1 and may already have some of them
+
+create index if not exists idx_transaction_category_date on transaction (category_id, date, id);
+create index if not exists idx_transaction_date_id on transaction (date, id);
+create index if not exists idx_category_budget on category (budget_id);
+create index if not exists idx_budget_user on budget (user_id);
@@ -0,0 +1,5 @@
+-- row versions for optimistic locking (@Version); rows written before this start at 0
+
+alter table budget add column version bigint default 0 not null;
+alter table category add column version bigint default 0 not null;
+alter table transaction add column version bigint default 0 not null;
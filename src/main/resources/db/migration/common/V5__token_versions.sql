@@ -0,0 +1,3 @@
+-- bumped to revoke every token of a user
+
+alter table users add column token_version integer default 0 not null;
@@ -0,0 +1,14 @@
+-- refresh tokens, rotated per use; a family is one login
+
+create table refresh_token (
+    id          varchar(255) not null primary key,
+    family      varchar(255) not null,
+    user_id     bigint not null,
+    expires_at  timestamp(6) with time zone not null,
+    revoked     boolean not null,
+    created_at  timestamp(6) not null
+);
+
+create index idx_refresh_token_family on refresh_token (family);
+create index idx_refresh_token_user on refresh_token (user_id);
+create index idx_refresh_token_expires on refresh_token (expires_at);
@@ -0,0 +1,11 @@
+-- running totals per category; rows missing for older categories are created on their first write
+
+create table category_balance (
+    category_id        bigint not null primary key,
+    budget_id          bigint not null,
+    type               varchar(255),
+    total              numeric(38, 2) not null,
+    transaction_count  bigint not null
+);
+
+create index idx_category_balance_budget on category_balance (budget_id);
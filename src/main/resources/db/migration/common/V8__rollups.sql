@@ -0,0 +1,25 @@
+-- totals per user, category and day or month; filled for existing transactions by the start-up backfill
+
+create table rollup_daily (
+    user_id            bigint not null,
+    category_id        bigint not null,
+    period_start       date not null,
+    total              numeric(38, 2) not null,
+    transaction_count  bigint not null,
+    primary key (user_id, category_id, period_start)
+);
+
+create index idx_rollup_daily_user_period on rollup_daily (user_id, period_start);
+create index idx_rollup_daily_category on rollup_daily (category_id);
+
+create table rollup_monthly (
+    user_id            bigint not null,
+    category_id        bigint not null,
+    period_start       date not null,
+    total              numeric(38, 2) not null,
+    transaction_count  bigint not null,
+    primary key (user_id, category_id, period_start)
+);
+
+create index idx_rollup_monthly_user_period on rollup_monthly (user_id, period_start);
+create index idx_rollup_monthly_category on rollup_monthly (category_id);
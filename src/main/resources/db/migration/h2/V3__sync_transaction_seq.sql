@@ -0,0 +1,5 @@
+-- as postgresql/V3: baselined databases have no transaction_seq, or one with increment 1, and ids from the
+-- identity column; the pooled optimizer hands out (value - 49 .. value), so the next value must be max(id) + 50
+create sequence if not exists transaction_seq start with 1 increment by 50;
+alter sequence transaction_seq increment by 50;
+alter sequence transaction_seq restart with (select coalesce(max(id), 0) + 50 from transaction);
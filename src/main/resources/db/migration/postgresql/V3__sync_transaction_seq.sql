@@ -0,0 +1,5 @@
+-- databases created by ddl-auto may have transaction_seq with increment 1 and ids from the former
+-- identity column; the pooled optimizer hands out (value - 49 .. value), so the next value must be max(id) + 50
+create sequence if not exists transaction_seq start with 1 increment by 50;
+alter sequence transaction_seq increment by 50;
+select setval('transaction_seq', (select coalesce(max(id), 0) from transaction) + 50, false);
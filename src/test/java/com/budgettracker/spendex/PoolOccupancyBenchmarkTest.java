@@ -0,0 +1,295 @@
+package com.budgettracker.spendex;
+
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// how many concurrent requests a fixed connection pool serves with and without open-session-in-view.
+// Clients hammer the budget tree endpoint, whose JSON rendering is the bulk of the request; with OSIV the
+// connection stays checked out while it renders. Run with: mvn test -Pbenchmark -Dtest=PoolOccupancyBenchmarkTest
+// Clients and server share the JVM, so where the CPU is the limit (one core: ~10-15 req/s in both modes) the
+// throughput does not move; what changes is how long each request holds a connection and how long the others
+// wait for one
+@Tag("benchmark")
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:pool-occupancy-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.datasource.hikari.maximum-pool-size=" + PoolOccupancyBenchmarkTest.POOL_SIZE,
+		"spring.datasource.hikari.minimum-idle=" + PoolOccupancyBenchmarkTest.POOL_SIZE,
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1wb29sLW9jY3VwYW5jeS1iZW5jaG1hcmstc2lnbmluZy1rZXk="
+})
+@AutoConfigureMockMvc
+class PoolOccupancyBenchmarkTest {
+
+	static final int POOL_SIZE = 4;
+
+	private static final Logger log = LoggerFactory.getLogger(PoolOccupancyBenchmarkTest.class);
+
+	private static final int[] CONCURRENCY = {4, 8, 16, 32, 64};
+	private static final int CATEGORIES = 10;
+	private static final int TRANSACTIONS_PER_CATEGORY = 300;
+	private static final Duration WARM_UP = Duration.ofSeconds(3);
+	private static final Duration STEP = Duration.ofSeconds(5);
+	// a level counts as sustained while requests wait this long for a connection on average
+	private static final double MAX_MEAN_ACQUIRE_MS = 1.0;
+
+	private static final Map<String, List<Step>> RESULTS = new LinkedHashMap<>();
+
+	@Nested
+	@TestPropertySource(properties = "spring.jpa.open-in-view=true")
+	class WithOpenSessionInView extends Scenario {
+		WithOpenSessionInView() {
+			super("open-in-view=true");
+		}
+	}
+
+	// application.properties as shipped
+	@Nested
+	class WithServiceTransactions extends Scenario {
+		WithServiceTransactions() {
+			super("open-in-view=false");
+		}
+	}
+
+	@AfterAll
+	static void report() {
+		List<Step> before = RESULTS.get("open-in-view=true");
+		List<Step> after = RESULTS.get("open-in-view=false");
+		if (before == null || after == null) {
+			return;
+		}
+
+		StringBuilder report = new StringBuilder("\nPool of " + POOL_SIZE + " connections, GET /api/budgets/{id}/tree ("
+				+ CATEGORIES * TRANSACTIONS_PER_CATEGORY + " transactions), "
+				+ Runtime.getRuntime().availableProcessors() + " CPUs\n");
+		report.append(String.format("%-18s %6s %10s %10s %10s %10s %8s%n",
+				"", "conc.", "req/s", "latency", "held", "acquire", "failed"));
+		for (String name : RESULTS.keySet()) {
+			for (Step step : RESULTS.get(name)) {
+				report.append(String.format("%-18s %6d %10.0f %8.2fms %8.2fms %8.2fms %8d%n", name, step.concurrency(),
+						step.throughput(), step.meanLatencyMs(), step.meanHeldMs(), step.meanAcquireMs(), step.failed()));
+			}
+			report.append(String.format("%-18s sustained without queueing: %d concurrent requests measured, ~%d by Little's law%n",
+					name, sustained(RESULTS.get(name)), littlesLawCapacity(RESULTS.get(name))));
+		}
+		log.info("{}", report);
+
+		// the connection is back in the pool before rendering starts, so each request holds it for less time
+		// and, with more clients than connections, the others wait less for it
+		Step lastBefore = before.get(before.size() - 1);
+		Step lastAfter = after.get(after.size() - 1);
+		assertThat(lastAfter.meanHeldMs()).isLessThan(lastBefore.meanHeldMs());
+		assertThat(lastAfter.meanAcquireMs()).isLessThan(lastBefore.meanAcquireMs());
+		assertThat(littlesLawCapacity(after)).isGreaterThan(littlesLawCapacity(before));
+	}
+
+	// highest tested level whose requests did not queue for a connection
+	private static int sustained(List<Step> steps) {
+		int sustained = 0;
+		for (Step step : steps) {
+			if (step.failed() == 0 && step.meanAcquireMs() <= MAX_MEAN_ACQUIRE_MS) {
+				sustained = step.concurrency();
+			}
+		}
+		return sustained;
+	}
+
+	// requests in flight the pool covers when each holds a connection for only part of its latency,
+	// taken at the lowest level where queueing does not inflate the latency yet
+	private static long littlesLawCapacity(List<Step> steps) {
+		Step step = steps.get(0);
+		return step.meanHeldMs() == 0 ? 0 : Math.round(POOL_SIZE * step.meanLatencyMs() / step.meanHeldMs());
+	}
+
+	abstract static class Scenario {
+
+		private final String name;
+
+		@Autowired
+		private MockMvc mockMvc;
+
+		@Autowired
+		private MeterRegistry meterRegistry;
+
+		@Autowired
+		private UserRepo userRepo;
+
+		@Autowired
+		private BudgetRepo budgetRepo;
+
+		@Autowired
+		private CategoryRepo categoryRepo;
+
+		@Autowired
+		private TransactionRepo transactionRepo;
+
+		private User owner;
+		private Budget budget;
+
+		Scenario(String name) {
+			this.name = name;
+		}
+
+		@BeforeEach
+		void setUp() {
+			owner = userRepo.save(User.builder()
+					.firstName("Bench")
+					.lastName("User")
+					.email(UUID.randomUUID() + "@example.com")
+					.password("secret")
+					.role(Role.USER)
+					.build());
+
+			budget = new Budget();
+			budget.setName("Benchmark");
+			budget.setStartDate(LocalDate.of(2025, 1, 1));
+			budget.setEndDate(LocalDate.of(2025, 12, 31));
+			budget.setUser(owner);
+			budget = budgetRepo.save(budget);
+
+			for (int c = 0; c < CATEGORIES; c++) {
+				Category category = new Category();
+				category.setName("Category " + c);
+				category.setType("expense");
+				category.setBudget(budget);
+				category = categoryRepo.save(category);
+
+				List<Transaction> transactions = new ArrayList<>(TRANSACTIONS_PER_CATEGORY);
+				for (int t = 0; t < TRANSACTIONS_PER_CATEGORY; t++) {
+					Transaction transaction = new Transaction();
+					transaction.setDescription("Benchmark transaction " + t + " of category " + c);
+					transaction.setAmount(BigDecimal.valueOf(100 + t, 2));
+					transaction.setDate(LocalDate.of(2025, 1, 1).plusDays(t % 365));
+					transaction.setCategory(category);
+					transactions.add(transaction);
+				}
+				transactionRepo.saveAll(transactions);
+			}
+		}
+
+		@Test
+		void connectionOccupancyUnderLoad() throws Exception {
+			run(8, WARM_UP);
+
+			List<Step> steps = new ArrayList<>();
+			for (int concurrency : CONCURRENCY) {
+				steps.add(run(concurrency, STEP));
+			}
+			synchronized (RESULTS) {
+				RESULTS.put(name, steps);
+			}
+		}
+
+		private Step run(int concurrency, Duration duration) throws Exception {
+			Timer usage = meterRegistry.get("hikaricp.connections.usage").timer();
+			Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+			long usageCount = usage.count();
+			double usageNanos = usage.totalTime(TimeUnit.NANOSECONDS);
+			long acquireCount = acquire.count();
+			double acquireNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+
+			ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+			long start = System.nanoTime();
+			long deadline = start + duration.toNanos();
+			List<Future<long[]>> results = new ArrayList<>();
+			for (int i = 0; i < concurrency; i++) {
+				results.add(clients.submit(() -> {
+					// completed, failed, total latency in nanos
+					long[] counts = new long[3];
+					while (System.nanoTime() < deadline) {
+						long requestStart = System.nanoTime();
+						try {
+							int status = mockMvc.perform(get("/api/budgets/{id}/tree", budget.getId()).with(user(owner)))
+									.andReturn().getResponse().getStatus();
+							counts[status == 200 ? 0 : 1]++;
+						} catch (Exception e) {
+							counts[1]++;
+						}
+						counts[2] += System.nanoTime() - requestStart;
+					}
+					return counts;
+				}));
+			}
+
+			long completed = 0;
+			long failed = 0;
+			long latencyNanos = 0;
+			for (Future<long[]> result : results) {
+				long[] counts = result.get();
+				completed += counts[0];
+				failed += counts[1];
+				latencyNanos += counts[2];
+			}
+			long elapsedNanos = System.nanoTime() - start;
+			clients.shutdown();
+
+			return new Step(concurrency, completed, failed, elapsedNanos, latencyNanos,
+					usage.count() - usageCount, usage.totalTime(TimeUnit.NANOSECONDS) - usageNanos,
+					acquire.count() - acquireCount, acquire.totalTime(TimeUnit.NANOSECONDS) - acquireNanos);
+		}
+	}
+
+	private record Step(int concurrency, long completed, long failed, long elapsedNanos, long latencyNanos,
+						long checkouts, double heldNanos, long acquires, double acquireNanos) {
+
+		double throughput() {
+			return completed * 1e9 / elapsedNanos;
+		}
+
+		double meanLatencyMs() {
+			long requests = completed + failed;
+			return requests == 0 ? 0 : latencyNanos / 1e6 / requests;
+		}
+
+		// connection time per request, a request may check out more than one connection
+		double meanHeldMs() {
+			long requests = completed + failed;
+			return requests == 0 ? 0 : heldNanos / 1e6 / requests;
+		}
+
+		double meanAcquireMs() {
+			return acquires == 0 ? 0 : acquireNanos / 1e6 / acquires;
+		}
+	}
+}
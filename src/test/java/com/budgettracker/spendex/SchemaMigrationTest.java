@@ -0,0 +1,115 @@
+package com.budgettracker.spendex;
+
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the schema comes from the migrations alone: Flyway builds it and Hibernate only validates the entities
+// against it (ddl-auto=validate as shipped), so a missing migration fails startup
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:schema-migration-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1zY2hlbWEtbWlncmF0aW9uLXRlc3Qtc2lnbmluZy1rZXk="
+})
+class SchemaMigrationTest {
+
+	@Nested
+	class EmptyDatabase {
+
+		@Autowired
+		private Flyway flyway;
+
+		@Value("${spring.jpa.hibernate.ddl-auto}")
+		private String ddlAuto;
+
+		@Value("${spring.flyway.enabled:true}")
+		private boolean flywayEnabled;
+
+		@Test
+		void migrationsBuildTheSchemaTheEntitiesMap() {
+			assertThat(flywayEnabled).isTrue();
+			assertThat(ddlAuto).isEqualTo("validate");
+
+			assertThat(flyway.info().pending()).isEmpty();
+			assertThat(flyway.info().applied())
+					.extracting(MigrationInfo::getScript)
+					.containsExactly("V1__baseline.sql", "V2__hot_path_indexes.sql", "V3__sync_transaction_seq.sql",
+							"V4__row_versions.sql", "V5__token_versions.sql", "V6__refresh_tokens.sql",
+							"V7__category_balances.sql", "V8__rollups.sql");
+		}
+	}
+
+	// a database of the baseline release has no history table: it is baselined at V1 and must reach the
+	// current schema with the later scripts alone
+	@Nested
+	class PreSeriesDatabase {
+
+		private static final String URL = "jdbc:h2:mem:pre-series-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+		@Autowired
+		private Flyway flyway;
+
+		@Autowired
+		private CategoryRepo categoryRepo;
+
+		@Autowired
+		private TransactionRepo transactionRepo;
+
+		@DynamicPropertySource
+		static void preSeriesDatabase(DynamicPropertyRegistry registry) throws SQLException {
+			try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				 Statement statement = connection.createStatement()) {
+				statement.execute("RUNSCRIPT FROM 'classpath:db/pre-series-schema.sql'");
+			}
+			registry.add("spring.datasource.url", () -> URL);
+		}
+
+		@Test
+		void laterScriptsBringItUpToDate() {
+			MigrationInfo baseline = flyway.info().applied()[0];
+			assertThat(baseline.getType().isBaseline()).isTrue();
+			assertThat(baseline.getVersion().getVersion()).isEqualTo("1");
+			assertThat(flyway.info().applied())
+					.extracting(MigrationInfo::getScript)
+					.contains("V5__token_versions.sql", "V6__refresh_tokens.sql", "V7__category_balances.sql",
+							"V8__rollups.sql");
+			assertThat(flyway.info().pending()).isEmpty();
+		}
+
+		@Test
+		void newTransactionsDoNotCollideWithOldIds() {
+			Category category = categoryRepo.findAll().get(0);
+
+			Transaction transaction = new Transaction();
+			transaction.setDescription("Market");
+			transaction.setAmount(new BigDecimal("7.00"));
+			transaction.setDate(LocalDate.of(2025, 3, 3));
+			transaction.setCategory(category);
+
+			assertThat(transactionRepo.save(transaction).getId()).isGreaterThan(2L);
+			assertThat(transactionRepo.count()).isEqualTo(3);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.budgettracker.spendex.config;
+
+import com.budgettracker.spendex.dto.AuthenticationRequest;
+import com.budgettracker.spendex.dto.AuthenticationResponse;
+import com.budgettracker.spendex.dto.RegisterRequest;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.AuthenticationService;
+import com.budgettracker.spendex.services.UserService;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// which bearer tokens the API accepts: only current access tokens of a login that was not revoked,
+// never refresh tokens or ones without a version
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:jwt-filter-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=" + JwtAuthenticationFilterTest.SECRET
+})
+@AutoConfigureMockMvc
+class JwtAuthenticationFilterTest {
+
+	static final String SECRET = "c3BlbmRleC1qd3QtZmlsdGVyLXRlc3Qtc2lnbmluZy1rZXktb2YtMzItYnl0ZXM=";
+
+	@Nested
+	class Stateful extends Scenario {
+
+		@Test
+		void tokenWithoutVersionIsStale() throws Exception {
+			String unversioned = sign(Jwts.builder()
+					.subject(user.getEmail())
+					.claim("role", user.getAuthorities()));
+
+			me(unversioned).andExpect(status().isForbidden());
+		}
+
+		@Test
+		void disablingTheUserRevokesItsTokens() throws Exception {
+			userService.toggleUser(user.getId(), false);
+
+			me(tokens.getAuthenticationToken())
+					.andExpect(status().isUnauthorized())
+					.andExpect(jsonPath("$.details").value("Token has been revoked"));
+			me(tokens.getRefreshToken()).andExpect(status().isUnauthorized());
+		}
+	}
+
+	@Nested
+	@TestPropertySource(properties = "security.jwt.stateless=true")
+	class Stateless extends Scenario {
+
+		@Test
+		void tokenWithoutRoleIsReportedAsSuch() throws Exception {
+			String roleless = sign(Jwts.builder()
+					.subject(user.getEmail())
+					.claim("uid", user.getId())
+					.claim("ver", user.getTokenVersion()));
+
+			me(roleless)
+					.andExpect(status().isUnauthorized())
+					.andExpect(jsonPath("$.details").value("Token carries no role"));
+		}
+
+		@Test
+		void disablingTheUserRevokesItsTokens() throws Exception {
+			userService.toggleUser(user.getId(), false);
+
+			me(tokens.getAuthenticationToken())
+					.andExpect(status().isUnauthorized())
+					.andExpect(jsonPath("$.details").value("Token has been revoked"));
+			me(tokens.getRefreshToken()).andExpect(status().isUnauthorized());
+		}
+	}
+
+	abstract static class Scenario {
+
+		@Autowired
+		protected MockMvc mockMvc;
+
+		@Autowired
+		protected AuthenticationService authenticationService;
+
+		@Autowired
+		protected UserService userService;
+
+		@Autowired
+		protected UserRepo userRepo;
+
+		protected User user;
+		protected AuthenticationResponse tokens;
+
+		@BeforeEach
+		void setUp() {
+			String email = UUID.randomUUID() + "@example.com";
+			tokens = authenticationService.register(RegisterRequest.builder()
+					.email(email)
+					.password("secret-password")
+					.firstName("Test")
+					.lastName("User")
+					.build());
+			user = userRepo.findByEmail(email).orElseThrow();
+		}
+
+		@Test
+		void accessTokenAuthenticates() throws Exception {
+			me(tokens.getAuthenticationToken()).andExpect(status().isOk());
+		}
+
+		@Test
+		void refreshTokenIsNotAnAccessToken() throws Exception {
+			me(tokens.getRefreshToken())
+					.andExpect(status().isUnauthorized())
+					.andExpect(jsonPath("$.details").value("Refresh tokens cannot be used as access tokens"));
+		}
+
+		@Test
+		void logoutRevokesTheAccessTokensOfThatLogin() throws Exception {
+			AuthenticationResponse otherLogin = authenticationService.authenticate(AuthenticationRequest.builder()
+					.email(user.getEmail())
+					.password("secret-password")
+					.build());
+
+			authenticationService.logout(tokens.getRefreshToken());
+
+			me(tokens.getAuthenticationToken())
+					.andExpect(status().isUnauthorized())
+					.andExpect(jsonPath("$.details").value("Token has been revoked"));
+			me(otherLogin.getAuthenticationToken()).andExpect(status().isOk());
+		}
+
+		@Test
+		void refreshTokenReuseRevokesTheWholeLogin() throws Exception {
+			AuthenticationResponse rotated = authenticationService.refreshToken(tokens.getRefreshToken());
+			me(rotated.getAuthenticationToken()).andExpect(status().isOk());
+
+			assertThatThrownBy(() -> authenticationService.refreshToken(tokens.getRefreshToken()))
+					.isInstanceOf(IllegalArgumentException.class);
+
+			me(tokens.getAuthenticationToken()).andExpect(status().isUnauthorized());
+			me(rotated.getAuthenticationToken()).andExpect(status().isUnauthorized());
+		}
+
+		protected ResultActions me(String token) throws Exception {
+			return mockMvc.perform(get("/api/user/me").header("Authorization", "Bearer " + token));
+		}
+	}
+
+	private static String sign(JwtBuilder builder) {
+		return builder
+				.issuedAt(new Date())
+				.expiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+				.compact();
+	}
+}
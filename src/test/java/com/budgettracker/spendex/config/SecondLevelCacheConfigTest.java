@@ -0,0 +1,65 @@
+package com.budgettracker.spendex.config;
+
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.internal.NoCachingRegionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the second-level cache only starts when spendex.cache.second-level.enabled is set, and then with our regions
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:second-level-cache-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1zZWNvbmQtbGV2ZWwtY2FjaGUtdGVzdC1zaWduaW5nLWtleQ=="
+})
+class SecondLevelCacheConfigTest {
+
+	// application.properties as shipped
+	@Nested
+	class Disabled {
+
+		@Autowired
+		private EntityManagerFactory entityManagerFactory;
+
+		@Test
+		void noRegionFactoryIsActive() {
+			SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+			assertThat(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()).isFalse();
+			assertThat(sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled()).isFalse();
+			assertThat(sessionFactory.getCache().getRegionFactory()).isInstanceOf(NoCachingRegionFactory.class);
+		}
+	}
+
+	@Nested
+	@TestPropertySource(properties = "spendex.cache.second-level.enabled=true")
+	class Enabled {
+
+		@Autowired
+		private EntityManagerFactory entityManagerFactory;
+
+		@Test
+		void configuredRegionsAreUsed() {
+			SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+			assertThat(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()).isTrue();
+			assertThat(sessionFactory.getCache().getRegionFactory()).isInstanceOf(JCacheRegionFactory.class);
+			assertThat(sessionFactory.getMappingMetamodel().getEntityDescriptor(Budget.class).canReadFromCache()).isTrue();
+			assertThat(sessionFactory.getMappingMetamodel().getEntityDescriptor(Category.class).canReadFromCache()).isTrue();
+			assertThat(sessionFactory.getMappingMetamodel().getEntityDescriptor(User.class).canReadFromCache()).isTrue();
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.BudgetPatch;
+import com.budgettracker.spendex.dto.RegisterRequest;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.AuthenticationService;
+import com.budgettracker.spendex.services.BudgetService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// If-Match on single writes and versions on batch items: a stale one is 412, a missing one 428 once required,
+// and a write that loses the race after the check is 409
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:conditional-request-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1jb25kaXRpb25hbC1yZXF1ZXN0LXRlc3Qtc2lnbmluZy1rZXk="
+})
+@AutoConfigureMockMvc
+class ConditionalRequestTest {
+
+	// application.properties as shipped
+	@Nested
+	class Optional extends Scenario {
+
+		@Test
+		void writeWithoutIfMatchGoesThrough() throws Exception {
+			patchBudget(null, "{\"name\":\"Renamed\"}")
+					.andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+		}
+
+		@Test
+		void batchItemWithoutVersionGoesThrough() throws Exception {
+			batchUpdate(null)
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[0].status").value(200));
+		}
+	}
+
+	@Nested
+	@TestPropertySource(properties = "spendex.concurrency.require-if-match=true")
+	class Required extends Scenario {
+
+		@Test
+		void writeWithoutIfMatchIsRejected() throws Exception {
+			patchBudget(null, "{\"name\":\"Renamed\"}").andExpect(status().isPreconditionRequired());
+
+			assertThat(budgetRepo.findById(budget.getId()).orElseThrow().getName()).isEqualTo("Home");
+		}
+
+		@Test
+		void batchItemWithoutVersionIsRejected() throws Exception {
+			batchUpdate(null)
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[0].status").value(428));
+		}
+	}
+
+	abstract static class Scenario {
+
+		@Autowired
+		protected MockMvc mockMvc;
+
+		@Autowired
+		protected AuthenticationService authenticationService;
+
+		@Autowired
+		protected BudgetService budgetService;
+
+		@Autowired
+		protected UserRepo userRepo;
+
+		@Autowired
+		protected BudgetRepo budgetRepo;
+
+		@Autowired
+		protected CategoryRepo categoryRepo;
+
+		@Autowired
+		protected TransactionRepo transactionRepo;
+
+		@Autowired
+		protected TransactionTemplate transactionTemplate;
+
+		@Autowired
+		protected EntityManager entityManager;
+
+		protected String token;
+		protected User owner;
+		protected Budget budget;
+		protected Transaction transaction;
+
+		@BeforeEach
+		void setUp() {
+			String email = UUID.randomUUID() + "@example.com";
+			token = authenticationService.register(RegisterRequest.builder()
+					.email(email)
+					.password("secret-password")
+					.firstName("Test")
+					.lastName("User")
+					.build()).getAuthenticationToken();
+			owner = userRepo.findByEmail(email).orElseThrow();
+
+			budget = new Budget();
+			budget.setName("Home");
+			budget.setStartDate(LocalDate.of(2025, 1, 1));
+			budget.setEndDate(LocalDate.of(2025, 12, 31));
+			budget.setUser(owner);
+			budget = budgetRepo.save(budget);
+
+			Category category = new Category();
+			category.setName("Food");
+			category.setType("expense");
+			category.setBudget(budget);
+			category = categoryRepo.save(category);
+
+			transaction = new Transaction();
+			transaction.setDescription("Groceries");
+			transaction.setAmount(new BigDecimal("12.50"));
+			transaction.setDate(LocalDate.of(2025, 3, 1));
+			transaction.setCategory(category);
+			transaction = transactionRepo.save(transaction);
+		}
+
+		@AfterEach
+		void tearDown() {
+			SecurityContextHolder.clearContext();
+		}
+
+		@Test
+		void currentIfMatchGoesThrough() throws Exception {
+			patchBudget("\"0\"", "{\"name\":\"Renamed\"}")
+					.andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+		}
+
+		@Test
+		void staleIfMatchIsRejected() throws Exception {
+			patchBudget("\"0\"", "{\"name\":\"Renamed\"}").andExpect(status().isOk());
+
+			patchBudget("\"0\"", "{\"name\":\"Overwritten\"}").andExpect(status().isPreconditionFailed());
+
+			assertThat(budgetRepo.findById(budget.getId()).orElseThrow().getName()).isEqualTo("Renamed");
+		}
+
+		@Test
+		void weakIfMatchNeverMatches() throws Exception {
+			patchBudget("W/\"0\"", "{\"name\":\"Renamed\"}").andExpect(status().isPreconditionFailed());
+		}
+
+		@Test
+		void anyIfMatchSkipsTheCheck() throws Exception {
+			patchBudget("*", "{\"name\":\"Renamed\"}").andExpect(status().isOk());
+		}
+
+		@Test
+		void patchKeepsTheEntityConstraints() throws Exception {
+			patchBudget("\"0\"", "{\"description\":\"" + "x".repeat(256) + "\"}")
+					.andExpect(status().isUnprocessableEntity());
+			patchBudget("\"0\"", "{\"name\":\" \"}").andExpect(status().isUnprocessableEntity());
+		}
+
+		@Test
+		void staleBatchItemIsRejected() throws Exception {
+			batchUpdate(transaction.getVersion() + 1)
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[0].status").value(412));
+
+			assertThat(transactionRepo.findById(transaction.getId()).orElseThrow().getDescription()).isEqualTo("Groceries");
+		}
+
+		@Test
+		void writeThatLosesTheRaceAfterTheCheckIsAConflict() {
+			SecurityContextHolder.getContext().setAuthentication(
+					new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+
+			assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+				// the If-Match check passes on the version read here, then another writer commits first
+				budgetService.patchBudget(budget.getId(), new BudgetPatch("Renamed", null, null, null), 0L);
+				CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(other ->
+						entityManager.createQuery("UPDATE Budget b SET b.name = 'Moved', b.version = b.version + 1 WHERE b.id = :id")
+								.setParameter("id", budget.getId())
+								.executeUpdate())).join();
+			})).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+			assertThat(budgetRepo.findById(budget.getId()).orElseThrow().getName()).isEqualTo("Moved");
+		}
+
+		protected ResultActions patchBudget(String ifMatch, String body) throws Exception {
+			var request = patch("/api/budgets/" + budget.getId())
+					.header("Authorization", "Bearer " + token)
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(body);
+			if (ifMatch != null) {
+				request.header(HttpHeaders.IF_MATCH, ifMatch);
+			}
+			return mockMvc.perform(request);
+		}
+
+		protected ResultActions batchUpdate(Long version) throws Exception {
+			return mockMvc.perform(post("/api/transactions/batch")
+					.header("Authorization", "Bearer " + token)
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("[{\"op\":\"update\",\"id\":" + transaction.getId()
+							+ (version == null ? "" : ",\"version\":" + version)
+							+ ",\"description\":\"Market\",\"amount\":12.50,\"date\":\"2025-03-01\"}]"));
+		}
+	}
+}
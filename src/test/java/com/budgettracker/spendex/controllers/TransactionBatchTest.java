@@ -0,0 +1,225 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.RegisterRequest;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.CategoryBalanceRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.AuthenticationService;
+import com.budgettracker.spendex.services.BudgetService;
+import com.budgettracker.spendex.services.CategoryService;
+import com.budgettracker.spendex.services.TransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// every item of a batch gets the status its single-item endpoint would have answered with; failed items are
+// skipped and the rest is applied, balances included
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:transaction-batch-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"spendex.concurrency.require-if-match=true",
+		"security.jwt.secret-key=c3BlbmRleC10cmFuc2FjdGlvbi1iYXRjaC10ZXN0LXNpZ25pbmcta2V5"
+})
+@AutoConfigureMockMvc
+class TransactionBatchTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AuthenticationService authenticationService;
+
+	@Autowired
+	private BudgetService budgetService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	@Autowired
+	private CategoryBalanceRepo balanceRepo;
+
+	private String token;
+	private Category category;
+	private Transaction groceries;
+	private Transaction market;
+	private Transaction othersRent;
+
+	@BeforeEach
+	void setUp() {
+		String email = UUID.randomUUID() + "@example.com";
+		token = register(email);
+		category = categoryOf(email);
+		groceries = transaction(category, "Groceries", "12.50");
+		market = transaction(category, "Market", "7.50");
+
+		String other = UUID.randomUUID() + "@example.com";
+		register(other);
+		othersRent = transaction(categoryOf(other), "Rent", "900.00");
+		SecurityContextHolder.clearContext();
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void eachItemGetsItsOwnStatus() throws Exception {
+		batch("[" +
+				create(category.getId(), "Coffee", "3.00") + "," +
+				create(999_999L, "Coffee", "3.00") + "," +
+				update(othersRent.getId(), othersRent.getVersion(), "Mine now", "1.00") + "," +
+				update(groceries.getId(), groceries.getVersion() + 1, "Stale", "1.00") + "," +
+				update(groceries.getId(), null, "Unversioned", "1.00") + "," +
+				create(category.getId(), "Refund", "-5.00") + "," +
+				update(groceries.getId(), groceries.getVersion(), "Groceries", "20.00") + "," +
+				update(999_999L, 0L, "Gone", "1.00") + "," +
+				"{\"op\":\"upsert\"}" + "]")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].status").value(201))
+				.andExpect(jsonPath("$[0].id").isNumber())
+				.andExpect(jsonPath("$[1].status").value(404))
+				.andExpect(jsonPath("$[2].status").value(403))
+				.andExpect(jsonPath("$[3].status").value(412))
+				.andExpect(jsonPath("$[4].status").value(428))
+				.andExpect(jsonPath("$[5].status").value(422))
+				.andExpect(jsonPath("$[5].error").value("Amount must be positive"))
+				.andExpect(jsonPath("$[6].status").value(200))
+				.andExpect(jsonPath("$[7].status").value(404))
+				.andExpect(jsonPath("$[8].status").value(400));
+
+		assertThat(transactionRepo.findById(othersRent.getId()).orElseThrow().getDescription()).isEqualTo("Rent");
+		assertThat(transactionRepo.findById(groceries.getId()).orElseThrow().getAmount()).isEqualByComparingTo("20.00");
+		// 20.00 + 7.50 + 3.00: only the applied items moved the balance
+		assertThat(balanceRepo.findById(category.getId()).orElseThrow().getTotal()).isEqualByComparingTo("30.50");
+	}
+
+	@Test
+	void updateAfterDeleteOfTheSameIdIsNotFound() throws Exception {
+		batch("[" +
+				delete(market.getId(), market.getVersion()) + "," +
+				update(market.getId(), market.getVersion(), "Market", "99.00") + "," +
+				delete(market.getId(), market.getVersion()) + "]")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].status").value(204))
+				.andExpect(jsonPath("$[1].status").value(404))
+				.andExpect(jsonPath("$[2].status").value(404));
+
+		assertThat(transactionRepo.existsById(market.getId())).isFalse();
+		assertThat(balanceRepo.findById(category.getId()).orElseThrow().getTotal()).isEqualByComparingTo("12.50");
+	}
+
+	@Test
+	void deleteRefusedForVersionKeepsTheRowForLaterItems() throws Exception {
+		batch("[" +
+				delete(market.getId(), market.getVersion() + 1) + "," +
+				delete(market.getId(), null) + "," +
+				delete(othersRent.getId(), othersRent.getVersion()) + "," +
+				update(market.getId(), market.getVersion(), "Market", "8.00") + "]")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].status").value(412))
+				.andExpect(jsonPath("$[1].status").value(428))
+				.andExpect(jsonPath("$[2].status").value(403))
+				.andExpect(jsonPath("$[3].status").value(200));
+
+		assertThat(transactionRepo.existsById(othersRent.getId())).isTrue();
+		assertThat(transactionRepo.findById(market.getId()).orElseThrow().getAmount()).isEqualByComparingTo("8.00");
+	}
+
+	@Test
+	void emptyBatchIsABadRequest() throws Exception {
+		batch("[]").andExpect(status().isBadRequest());
+	}
+
+	private ResultActions batch(String body) throws Exception {
+		return mockMvc.perform(post("/api/transactions/batch")
+				.header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(body));
+	}
+
+	private static String create(Long categoryId, String description, String amount) {
+		return "{\"op\":\"create\",\"categoryId\":" + categoryId + ",\"description\":\"" + description
+				+ "\",\"amount\":" + amount + ",\"date\":\"2025-03-05\"}";
+	}
+
+	private static String update(Long id, Long version, String description, String amount) {
+		return "{\"op\":\"update\",\"id\":" + id + (version == null ? "" : ",\"version\":" + version)
+				+ ",\"description\":\"" + description + "\",\"amount\":" + amount + ",\"date\":\"2025-03-01\"}";
+	}
+
+	private static String delete(Long id, Long version) {
+		return "{\"op\":\"delete\",\"id\":" + id + (version == null ? "" : ",\"version\":" + version) + "}";
+	}
+
+	private String register(String email) {
+		return authenticationService.register(RegisterRequest.builder()
+				.email(email)
+				.password("secret-password")
+				.firstName("Test")
+				.lastName("User")
+				.build()).getAuthenticationToken();
+	}
+
+	// budget and category created through the services, so the balance row exists
+	private Category categoryOf(String email) {
+		User owner = userRepo.findByEmail(email).orElseThrow();
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+
+		Budget budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget = budgetService.createBudget(budget);
+
+		Category created = new Category();
+		created.setName("Food");
+		created.setType("expense");
+		created.setBudget(budget);
+		return categoryService.createCategory(created);
+	}
+
+	private Transaction transaction(Category target, String description, String amount) {
+		Transaction transaction = new Transaction();
+		transaction.setDescription(description);
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setDate(LocalDate.of(2025, 3, 1));
+		transaction.setCategory(target);
+		return transactionService.createTransaction(transaction);
+	}
+}
@@ -0,0 +1,181 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.RegisterRequest;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.AuthenticationService;
+import com.budgettracker.spendex.util.Csv;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the streamed export writes exactly the documented row format, oldest first, and only the caller's rows
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:transaction-export-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC10cmFuc2FjdGlvbi1leHBvcnQtdGVzdC1zaWduaW5nLWtleQ=="
+})
+@AutoConfigureMockMvc
+class TransactionExportTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private AuthenticationService authenticationService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	private String token;
+	private Category salary;
+	private Category food;
+	private final List<Transaction> oldestFirst = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String email = UUID.randomUUID() + "@example.com";
+		token = register(email);
+		Budget budget = budgetOf(userRepo.findByEmail(email).orElseThrow());
+		salary = category(budget, "Salary", "income");
+		food = category(budget, "Food, drinks", "expense");
+
+		oldestFirst.clear();
+		Transaction late = transaction(food, "Bread, \"fresh\"", "4.20", LocalDate.of(2025, 3, 2));
+		oldestFirst.add(transaction(salary, "March salary", "1000.00", LocalDate.of(2025, 3, 1)));
+		oldestFirst.add(transaction(food, "Coffee", "3.00", LocalDate.of(2025, 3, 1)));
+		oldestFirst.add(late);
+
+		// someone else's row never shows up
+		String other = UUID.randomUUID() + "@example.com";
+		register(other);
+		transaction(category(budgetOf(userRepo.findByEmail(other).orElseThrow()), "Rent", "expense"),
+				"Rent", "900.00", LocalDate.of(2025, 3, 1));
+	}
+
+	@Test
+	void csvMatchesTheRowFormat() throws Exception {
+		String body = mockMvc.perform(get("/api/transactions/export?format=csv").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions.csv\""))
+				.andReturn().getResponse().getContentAsString();
+
+		StringBuilder expected = new StringBuilder("id,date,amount,type,category_id,category,description\n");
+		for (Transaction transaction : oldestFirst) {
+			Category category = transaction.getCategory();
+			expected.append(transaction.getId()).append(',').append(transaction.getDate()).append(',')
+					.append(transaction.getAmount().setScale(2)).append(',').append(category.getType()).append(',')
+					.append(category.getId()).append(',').append(Csv.escape(category.getName())).append(',')
+					.append(Csv.escape(transaction.getDescription())).append('\n');
+		}
+		assertThat(body).isEqualTo(expected.toString());
+
+		// and it reads back with the import's parser
+		String last = body.lines().toList().get(3);
+		assertThat(Csv.parseLine(last)).containsExactly(oldestFirst.get(2).getId().toString(), "2025-03-02", "4.20",
+				"expense", food.getId().toString(), "Food, drinks", "Bread, \"fresh\"");
+	}
+
+	@Test
+	void ndjsonHasOneRowObjectPerLine() throws Exception {
+		String body = mockMvc.perform(get("/api/transactions/export?format=ndjson").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		List<String> lines = body.lines().toList();
+		assertThat(body).endsWith("\n");
+		assertThat(lines).hasSize(oldestFirst.size());
+		for (int i = 0; i < lines.size(); i++) {
+			Transaction transaction = oldestFirst.get(i);
+			JsonNode row = objectMapper.readTree(lines.get(i));
+			assertThat(row.get("id").asLong()).isEqualTo(transaction.getId());
+			assertThat(row.get("date").asText()).isEqualTo(transaction.getDate().toString());
+			assertThat(row.get("amount").decimalValue()).isEqualByComparingTo(transaction.getAmount());
+			assertThat(row.get("description").asText()).isEqualTo(transaction.getDescription());
+			assertThat(row.get("categoryId").asLong()).isEqualTo(transaction.getCategory().getId());
+			assertThat(row.get("categoryName").asText()).isEqualTo(transaction.getCategory().getName());
+			assertThat(row.get("categoryType").asText()).isEqualTo(transaction.getCategory().getType());
+			assertThat(row.size()).isEqualTo(7);
+		}
+	}
+
+	@Test
+	void unknownFormatIsABadRequest() throws Exception {
+		mockMvc.perform(get("/api/transactions/export?format=xml").header("Authorization", "Bearer " + token))
+				.andExpect(status().isBadRequest());
+	}
+
+	private String register(String email) {
+		return authenticationService.register(RegisterRequest.builder()
+				.email(email)
+				.password("secret-password")
+				.firstName("Test")
+				.lastName("User")
+				.build()).getAuthenticationToken();
+	}
+
+	private Budget budgetOf(User owner) {
+		Budget budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		return budgetRepo.save(budget);
+	}
+
+	private Category category(Budget budget, String name, String type) {
+		Category category = new Category();
+		category.setName(name);
+		category.setType(type);
+		category.setBudget(budget);
+		return categoryRepo.save(category);
+	}
+
+	private Transaction transaction(Category category, String description, String amount, LocalDate date) {
+		Transaction transaction = new Transaction();
+		transaction.setDescription(description);
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setDate(date);
+		transaction.setCategory(category);
+		return transactionRepo.save(transaction);
+	}
+}
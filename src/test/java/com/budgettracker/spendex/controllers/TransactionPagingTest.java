@@ -0,0 +1,171 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.RegisterRequest;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.AuthenticationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the category and search pages return list views and walk the whole listing through nextCursor
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:transaction-paging-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC10cmFuc2FjdGlvbi1wYWdpbmctdGVzdC1zaWduaW5nLWtleQ=="
+})
+@AutoConfigureMockMvc
+class TransactionPagingTest {
+
+	private static final int TRANSACTIONS = 5;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private AuthenticationService authenticationService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	private String token;
+	private Category category;
+	private final List<Long> newestFirst = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String email = UUID.randomUUID() + "@example.com";
+		token = register(email);
+		User owner = userRepo.findByEmail(email).orElseThrow();
+
+		Budget budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		budget = budgetRepo.save(budget);
+
+		category = new Category();
+		category.setName("Food");
+		category.setType("expense");
+		category.setBudget(budget);
+		category = categoryRepo.save(category);
+
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			Transaction transaction = new Transaction();
+			transaction.setDescription("Groceries " + i);
+			transaction.setAmount(new BigDecimal("12.50"));
+			// two rows share a date, the id breaks the tie
+			transaction.setDate(LocalDate.of(2025, 3, 1 + i / 2));
+			transaction.setCategory(category);
+			ids.add(transactionRepo.save(transaction).getId());
+		}
+		newestFirst.clear();
+		newestFirst.addAll(ids.reversed());
+	}
+
+	@Test
+	void categoryPagesWalkTheWholeCategory() throws Exception {
+		assertThat(walk("/api/transactions/by-category/" + category.getId() + "/page?size=2")).isEqualTo(newestFirst);
+	}
+
+	@Test
+	void searchPagesWalkEveryMatch() throws Exception {
+		assertThat(walk("/api/transactions/search?q=groc&size=2")).isEqualTo(newestFirst);
+	}
+
+	@Test
+	void pagesHoldViewsNotEntities() throws Exception {
+		for (String url : new String[]{"/api/transactions/by-category/" + category.getId() + "/page",
+				"/api/transactions/search?q=groceries"}) {
+			mockMvc.perform(get(url).header("Authorization", "Bearer " + token))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.items[0].categoryId").value(category.getId()))
+					.andExpect(jsonPath("$.items[0].version").exists())
+					.andExpect(jsonPath("$.items[0].category").doesNotExist());
+		}
+	}
+
+	@Test
+	void tamperedCursorIsABadRequest() throws Exception {
+		mockMvc.perform(get("/api/transactions/by-category/" + category.getId() + "/page?cursor=not-a-cursor")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/transactions/search?q=groc&cursor=not-a-cursor")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void anotherUsersCategoryIsForbidden() throws Exception {
+		mockMvc.perform(get("/api/transactions/by-category/" + category.getId() + "/page")
+						.header("Authorization", "Bearer " + register(UUID.randomUUID() + "@example.com")))
+				.andExpect(status().isForbidden());
+	}
+
+	private List<Long> walk(String firstPage) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			String url = cursor == null ? firstPage : firstPage + "&cursor=" + cursor;
+			JsonNode page = objectMapper.readTree(mockMvc.perform(get(url).header("Authorization", "Bearer " + token))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+			page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(3);
+		return ids;
+	}
+
+	private String register(String email) {
+		return authenticationService.register(RegisterRequest.builder()
+				.email(email)
+				.password("secret-password")
+				.firstName("Test")
+				.lastName("User")
+				.build()).getAuthenticationToken();
+	}
+}
@@ -0,0 +1,153 @@
+package com.budgettracker.spendex.controllers;
+
+import com.budgettracker.spendex.dto.RegisterRequest;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import com.budgettracker.spendex.services.AuthenticationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// what the read endpoints put on the wire: ids instead of associations, never the password hash or token version
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:view-response-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC12aWV3LXJlc3BvbnNlLXRlc3Qtc2lnbmluZy1rZXk="
+})
+@AutoConfigureMockMvc
+class ViewResponseTest {
+
+	private static final Set<String> FORBIDDEN = Set.of("password", "tokenVersion", "user", "budget", "category",
+			"hibernateLazyInitializer", "handler");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private AuthenticationService authenticationService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	private String token;
+	private Budget budget;
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		String email = UUID.randomUUID() + "@example.com";
+		token = authenticationService.register(RegisterRequest.builder()
+				.email(email)
+				.password("secret-password")
+				.firstName("Test")
+				.lastName("User")
+				.build()).getAuthenticationToken();
+		User owner = userRepo.findByEmail(email).orElseThrow();
+
+		budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		budget = budgetRepo.save(budget);
+
+		category = new Category();
+		category.setName("Food");
+		category.setType("expense");
+		category.setBudget(budget);
+		category = categoryRepo.save(category);
+
+		Transaction transaction = new Transaction();
+		transaction.setDescription("Groceries");
+		transaction.setAmount(new BigDecimal("12.50"));
+		transaction.setDate(LocalDate.of(2025, 3, 1));
+		transaction.setCategory(category);
+		transactionRepo.save(transaction);
+	}
+
+	@Test
+	void profileHasNoCredentials() throws Exception {
+		JsonNode profile = read("/api/user/me");
+
+		assertThat(profile.has("email")).isTrue();
+		assertThat(fieldNames(profile)).doesNotContainAnyElementsOf(FORBIDDEN);
+	}
+
+	@Test
+	void expandedTreesHoldIdsNotAssociations() throws Exception {
+		for (String url : new String[]{
+				"/api/budgets?expand=categories,transactions",
+				"/api/budgets/" + budget.getId() + "?expand=categories,transactions",
+				"/api/budgets/" + budget.getId() + "/tree",
+				"/api/categories/" + category.getId() + "?expand=transactions",
+				"/api/categories/by-budget/" + budget.getId() + "?expand=transactions",
+				"/api/transactions/by-category/" + category.getId()}) {
+			List<String> names = fieldNames(read(url));
+
+			assertThat(names).as(url).doesNotContainAnyElementsOf(FORBIDDEN);
+			assertThat(names).as(url).contains("id", "version");
+		}
+		assertThat(fieldNames(read("/api/budgets?expand=categories,transactions")))
+				.contains("userId", "budgetId", "categoryId", "categories", "transactions");
+	}
+
+	private JsonNode read(String url) throws Exception {
+		return objectMapper.readTree(mockMvc.perform(get(url).header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+	}
+
+	// every field name at any depth
+	private static List<String> fieldNames(JsonNode node) {
+		List<String> names = new ArrayList<>();
+		collect(node, names);
+		return names;
+	}
+
+	private static void collect(JsonNode node, List<String> names) {
+		if (node.isObject()) {
+			Iterator<String> fields = node.fieldNames();
+			fields.forEachRemaining(names::add);
+		}
+		node.forEach(child -> collect(child, names));
+	}
+}
@@ -0,0 +1,52 @@
+package com.budgettracker.spendex.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// cursors survive the trip through a client unchanged, and anything else a client sends back is rejected
+class CursorTest {
+
+	@Test
+	void transactionCursorRoundTrips() {
+		TransactionCursor cursor = new TransactionCursor(LocalDate.of(2025, 3, 1), 42L);
+
+		assertThat(TransactionCursor.decode(cursor.encode())).isEqualTo(cursor);
+		assertThat(cursor.encode()).doesNotContain("=", "+", "/");
+	}
+
+	@Test
+	void idCursorRoundTrips() {
+		IdCursor cursor = new IdCursor(Long.MAX_VALUE);
+
+		assertThat(IdCursor.decode(cursor.encode())).isEqualTo(cursor);
+	}
+
+	@Test
+	void tamperedTransactionCursorIsRejected() {
+		for (String cursor : new String[]{"not base64!", encode("2025-03-01"), encode("2025-13-01|1"),
+				encode("2025-03-01|x"), encode("|1"), ""}) {
+			assertThatThrownBy(() -> TransactionCursor.decode(cursor))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Invalid cursor");
+		}
+	}
+
+	@Test
+	void tamperedIdCursorIsRejected() {
+		for (String cursor : new String[]{"not base64!", encode("x"), encode("1|2"), ""}) {
+			assertThatThrownBy(() -> IdCursor.decode(cursor))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Invalid cursor");
+		}
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
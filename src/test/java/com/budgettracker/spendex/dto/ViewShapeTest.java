@@ -0,0 +1,48 @@
+package com.budgettracker.spendex.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// views hold plain values and nested views only: no entity, so nothing lazy to serialize, and no secrets
+class ViewShapeTest {
+
+	private static final List<Class<? extends Record>> VIEWS =
+			List.of(UserView.class, BudgetView.class, CategoryView.class, TransactionView.class);
+
+	@Test
+	void viewsReferenceNoEntity() {
+		for (Class<? extends Record> view : VIEWS) {
+			for (RecordComponent component : view.getRecordComponents()) {
+				assertThat(isPlainOrView(component.getGenericType()))
+						.as("%s.%s", view.getSimpleName(), component.getName())
+						.isTrue();
+			}
+		}
+	}
+
+	@Test
+	void viewsCarryNoCredentials() {
+		for (Class<? extends Record> view : VIEWS) {
+			for (RecordComponent component : view.getRecordComponents()) {
+				assertThat(component.getName().toLowerCase())
+						.as("%s.%s", view.getSimpleName(), component.getName())
+						.doesNotContain("password", "token");
+			}
+		}
+	}
+
+	private static boolean isPlainOrView(Type type) {
+		if (type instanceof ParameterizedType parameterized) {
+			return parameterized.getRawType() == List.class
+					&& VIEWS.contains(parameterized.getActualTypeArguments()[0]);
+		}
+		Class<?> raw = (Class<?>) type;
+		return raw.isPrimitive() || raw.getPackageName().startsWith("java.") || raw.isEnum();
+	}
+}
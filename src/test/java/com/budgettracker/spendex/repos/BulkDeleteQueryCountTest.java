@@ -0,0 +1,130 @@
+package com.budgettracker.spendex.repos;
+
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// deleting a budget or a category is a fixed number of statements however many rows hang below it,
+// none of them loaded; the final delete only matches the version that was read
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false"
+})
+class BulkDeleteQueryCountTest {
+
+	private static final int CATEGORIES = 3;
+	private static final int TRANSACTIONS_PER_CATEGORY = 4;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	private Statistics statistics;
+	private Budget budget;
+	private final List<Category> categories = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		User owner = entityManager.persist(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email("owner@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+
+		budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		entityManager.persist(budget);
+
+		for (int i = 0; i < CATEGORIES; i++) {
+			Category category = new Category();
+			category.setName("Category " + i);
+			category.setType("expense");
+			category.setBudget(budget);
+			categories.add(entityManager.persist(category));
+
+			for (int j = 0; j < TRANSACTIONS_PER_CATEGORY; j++) {
+				Transaction transaction = new Transaction();
+				transaction.setDescription("Groceries");
+				transaction.setAmount(new BigDecimal("12.50"));
+				transaction.setDate(LocalDate.of(2025, 3, 1 + j));
+				transaction.setCategory(category);
+				entityManager.persist(transaction);
+			}
+		}
+
+		entityManager.flush();
+		entityManager.clear();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void budgetSweepIsFixedStatements() {
+		Long id = budget.getId();
+
+		assertThat(budgetRepo.lockVersionById(id)).contains(budget.getVersion());
+		assertThat(categoryRepo.findIdsByBudgetId(id)).hasSize(CATEGORIES);
+		assertThat(transactionRepo.deleteByBudgetId(id)).isEqualTo(CATEGORIES * TRANSACTIONS_PER_CATEGORY);
+		assertThat(categoryRepo.deleteByBudgetId(id)).isEqualTo(CATEGORIES);
+		assertThat(budgetRepo.deleteByIdAndVersion(id, budget.getVersion())).isEqualTo(1);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(budgetRepo.existsById(id)).isFalse();
+	}
+
+	@Test
+	void categorySweepIsFixedStatements() {
+		Category category = categories.get(0);
+
+		assertThat(transactionRepo.deleteByCategoryId(category.getId())).isEqualTo(TRANSACTIONS_PER_CATEGORY);
+		assertThat(categoryRepo.deleteByIdAndVersion(category.getId(), category.getVersion())).isEqualTo(1);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(categoryRepo.findIdsByBudgetId(budget.getId())).hasSize(CATEGORIES - 1);
+	}
+
+	@Test
+	void staleVersionDeletesNothing() {
+		assertThat(budgetRepo.deleteByIdAndVersion(budget.getId(), budget.getVersion() + 1)).isZero();
+		assertThat(categoryRepo.deleteByIdAndVersion(categories.get(0).getId(), categories.get(0).getVersion() + 1)).isZero();
+
+		assertThat(budgetRepo.existsById(budget.getId())).isTrue();
+		assertThat(categoryRepo.existsById(categories.get(0).getId())).isTrue();
+	}
+}
@@ -0,0 +1,151 @@
+package com.budgettracker.spendex.repos;
+
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the owned lookups behind get/update/delete of budgets, categories and transactions must be one statement,
+// including the walk up to the owning user; the budget tree stays at two
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false"
+})
+class OwnedFetchQueryCountTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	private Statistics statistics;
+	private User owner;
+	private User stranger;
+	private Budget budget;
+	private Category category;
+	private Transaction transaction;
+
+	@BeforeEach
+	void setUp() {
+		owner = entityManager.persist(user("owner@example.com"));
+		stranger = entityManager.persist(user("stranger@example.com"));
+
+		budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		entityManager.persist(budget);
+
+		category = new Category();
+		category.setName("Food");
+		category.setType("expense");
+		category.setBudget(budget);
+		entityManager.persist(category);
+
+		transaction = new Transaction();
+		transaction.setDescription("Groceries");
+		transaction.setAmount(new BigDecimal("12.50"));
+		transaction.setDate(LocalDate.of(2025, 3, 1));
+		transaction.setCategory(category);
+		entityManager.persist(transaction);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void ownedTransactionIsOneStatement() {
+		Transaction found = transactionRepo.findOwnedById(transaction.getId(), owner.getId()).orElseThrow();
+
+		assertThat(found.getCategory().getBudget().getUser().getId()).isEqualTo(owner.getId());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void transactionWithOwnerIsOneStatement() {
+		Transaction found = transactionRepo.findWithOwnerById(transaction.getId()).orElseThrow();
+
+		assertThat(found.getCategory().getBudget().getUser().getId()).isEqualTo(owner.getId());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void ownedCategoryIsOneStatement() {
+		Category found = categoryRepo.findOwnedById(category.getId(), owner.getId()).orElseThrow();
+
+		assertThat(found.getBudget().getUser().getId()).isEqualTo(owner.getId());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void ownedBudgetIsOneStatement() {
+		Budget found = budgetRepo.findOwnedById(budget.getId(), owner.getId()).orElseThrow();
+
+		assertThat(found.getUser().getId()).isEqualTo(owner.getId());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void budgetTreeIsTwoStatements() {
+		Budget found = budgetRepo.findOwnedTreeById(budget.getId(), owner.getId()).orElseThrow();
+
+		assertThat(found.getCategories()).extracting(Category::getId).containsExactly(category.getId());
+		assertThat(transactionRepo.findTreeViews(budget.getId(), null, null)).hasSize(1);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void budgetTreeTransactionsAreFilteredByDate() {
+		assertThat(transactionRepo.findTreeViews(budget.getId(), LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 1)))
+				.hasSize(1);
+		assertThat(transactionRepo.findTreeViews(budget.getId(), LocalDate.of(2025, 3, 2), null)).isEmpty();
+		assertThat(transactionRepo.findTreeViews(budget.getId(), null, LocalDate.of(2025, 2, 28))).isEmpty();
+	}
+
+	@Test
+	void otherUsersRowsAreNotReturned() {
+		assertThat(transactionRepo.findOwnedById(transaction.getId(), stranger.getId())).isEmpty();
+		assertThat(categoryRepo.findOwnedById(category.getId(), stranger.getId())).isEmpty();
+		assertThat(budgetRepo.findOwnedById(budget.getId(), stranger.getId())).isEmpty();
+		assertThat(budgetRepo.findOwnedTreeById(budget.getId(), stranger.getId())).isEmpty();
+	}
+
+	private static User user(String email) {
+		return User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(email)
+				.password("secret")
+				.role(Role.USER)
+				.build();
+	}
+}
@@ -0,0 +1,155 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.CategoryPatch;
+import com.budgettracker.spendex.dto.CategoryTotal;
+import com.budgettracker.spendex.dto.SpendingAnalytics;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// income and expense rows of one user are summed apart, on the prefix-sum path and on the scanning one
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:analytics-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1hbmFseXRpY3Mtc2VydmljZS10ZXN0LXNpZ25pbmcta2V5"
+})
+class AnalyticsServiceTest {
+
+	@Autowired
+	private AnalyticsService analyticsService;
+
+	@Autowired
+	private BudgetService budgetService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	private Category salary;
+	private Category food;
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepo.save(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+
+		Budget budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget = budgetService.createBudget(budget);
+
+		salary = category(budget, "Salary", "income");
+		food = category(budget, "Food", "expense");
+
+		transaction(salary, "1000.00", LocalDate.of(2025, 3, 1));
+		transaction(food, "12.50", LocalDate.of(2025, 3, 1));
+		transaction(food, "7.50", LocalDate.of(2025, 3, 2));
+		transaction(salary, "50.00", LocalDate.of(2025, 4, 1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void rangeTotalsKeepIncomeAndExpenseApart() {
+		SpendingAnalytics all = analyticsService.getSpending(null, null, null, null, null, false);
+		assertThat(all.getTotalIncome()).isEqualByComparingTo("1050.00");
+		assertThat(all.getTotalExpense()).isEqualByComparingTo("20.00");
+		assertThat(all.getTransactionCount()).isEqualTo(4);
+
+		SpendingAnalytics march = analyticsService.getSpending(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31),
+				null, null, null, false);
+		assertThat(march.getTotalIncome()).isEqualByComparingTo("1000.00");
+		assertThat(march.getTotalExpense()).isEqualByComparingTo("20.00");
+	}
+
+	@Test
+	void breakdownTagsEachCategoryWithItsType() {
+		SpendingAnalytics spending = analyticsService.getSpending(null, null, null, null, null, true);
+
+		assertThat(spending.getTotalIncome()).isEqualByComparingTo("1050.00");
+		assertThat(spending.getTotalExpense()).isEqualByComparingTo("20.00");
+		assertThat(spending.getCategories())
+				.extracting(CategoryTotal::categoryId, CategoryTotal::type, CategoryTotal::transactionCount)
+				.containsExactlyInAnyOrder(
+						tuple(salary.getId(), "income", 2L),
+						tuple(food.getId(), "expense", 2L));
+	}
+
+	@Test
+	void filtersApplyToBothTypes() {
+		SpendingAnalytics band = analyticsService.getSpending(null, null, null, new BigDecimal("10.00"),
+				new BigDecimal("100.00"), false);
+		assertThat(band.getTotalIncome()).isEqualByComparingTo("50.00");
+		assertThat(band.getTotalExpense()).isEqualByComparingTo("12.50");
+
+		SpendingAnalytics foodOnly = analyticsService.getSpending(null, null, List.of(food.getId()), null, null, false);
+		assertThat(foodOnly.getTotalIncome()).isEqualByComparingTo("0.00");
+		assertThat(foodOnly.getTotalExpense()).isEqualByComparingTo("20.00");
+	}
+
+	@Test
+	void changingACategoryTypeMovesItsTotals() {
+		analyticsService.getSpending(null, null, null, null, null, false);
+
+		categoryService.patchCategory(food.getId(), new CategoryPatch(null, "income", null), null);
+
+		SpendingAnalytics spending = analyticsService.getSpending(null, null, null, null, null, false);
+		assertThat(spending.getTotalIncome()).isEqualByComparingTo("1070.00");
+		assertThat(spending.getTotalExpense()).isEqualByComparingTo("0.00");
+	}
+
+	private Category category(Budget budget, String name, String type) {
+		Category category = new Category();
+		category.setName(name);
+		category.setType(type);
+		category.setBudget(budget);
+		return categoryService.createCategory(category);
+	}
+
+	private void transaction(Category category, String amount, LocalDate date) {
+		Transaction transaction = new Transaction();
+		transaction.setDescription(category.getName());
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setDate(date);
+		transaction.setCategory(category);
+		transactionService.createTransaction(transaction);
+	}
+}
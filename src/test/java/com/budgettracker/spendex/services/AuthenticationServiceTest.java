@@ -0,0 +1,152 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.AuthenticationRequest;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// a failed login costs the same single hash whether the email is unknown, the account unusable or the password wrong
+class AuthenticationServiceTest {
+
+	private static final String EMAIL = "user@example.com";
+	private static final String PASSWORD = "secret-password";
+	private static final String HASH = "$2a$10$stored-hash";
+
+	private PasswordEncoder passwordEncoder;
+	private PrincipalCache principalCache;
+	private JwtService jwtService;
+	private RefreshTokenService refreshTokenService;
+	private AuthenticationService authenticationService;
+
+	@BeforeEach
+	void setUp() {
+		passwordEncoder = mock(PasswordEncoder.class);
+		when(passwordEncoder.encode(anyString())).thenReturn("$2a$10$unknown-user-hash");
+		when(passwordEncoder.matches(PASSWORD, HASH)).thenReturn(true);
+		principalCache = mock(PrincipalCache.class);
+		jwtService = mock(JwtService.class);
+		refreshTokenService = mock(RefreshTokenService.class);
+		authenticationService = new AuthenticationService(mock(UserRepo.class), passwordEncoder, principalCache,
+				jwtService, refreshTokenService);
+	}
+
+	@Test
+	void validLoginIssuesTokens() {
+		when(principalCache.get(EMAIL)).thenReturn(user(true));
+		when(jwtService.generateToken(any(), any())).thenReturn("access");
+		when(refreshTokenService.newFamily()).thenReturn("family");
+		when(refreshTokenService.issue(any(), any())).thenReturn("refresh");
+
+		assertThat(authenticationService.authenticate(request(PASSWORD)).getAuthenticationToken()).isEqualTo("access");
+		verify(passwordEncoder, times(1)).matches(PASSWORD, HASH);
+	}
+
+	@Test
+	void unknownEmailStillHashes() {
+		when(principalCache.get(EMAIL)).thenThrow(new UsernameNotFoundException("User not found"));
+
+		assertThatThrownBy(() -> authenticationService.authenticate(request(PASSWORD)))
+				.isInstanceOf(BadCredentialsException.class)
+				.hasMessage("Invalid email or password");
+		verify(passwordEncoder, times(1)).matches(eq(PASSWORD), anyString());
+	}
+
+	@Test
+	void disabledAccountStillHashes() {
+		when(principalCache.get(EMAIL)).thenReturn(user(false));
+
+		assertThatThrownBy(() -> authenticationService.authenticate(request(PASSWORD)))
+				.isInstanceOf(BadCredentialsException.class)
+				.hasMessage("Invalid email or password");
+		verify(passwordEncoder, times(1)).matches(PASSWORD, HASH);
+	}
+
+	@Test
+	void wrongPasswordIsRejected() {
+		when(principalCache.get(EMAIL)).thenReturn(user(true));
+
+		assertThatThrownBy(() -> authenticationService.authenticate(request("wrong")))
+				.isInstanceOf(BadCredentialsException.class);
+		verify(passwordEncoder, times(1)).matches("wrong", HASH);
+	}
+
+	@Test
+	void lockedExpiredAndCredentialsExpiredAccountsAreRejected() {
+		User locked = spy(user(true));
+		when(locked.isAccountNonLocked()).thenReturn(false);
+		User expired = spy(user(true));
+		when(expired.isAccountNonExpired()).thenReturn(false);
+		User credentialsExpired = spy(user(true));
+		when(credentialsExpired.isCredentialsNonExpired()).thenReturn(false);
+
+		for (User user : new User[]{locked, expired, credentialsExpired}) {
+			when(principalCache.get(EMAIL)).thenReturn(user);
+
+			assertThatThrownBy(() -> authenticationService.authenticate(request(PASSWORD)))
+					.isInstanceOf(BadCredentialsException.class)
+					.hasMessage("Invalid email or password");
+		}
+	}
+
+	@Test
+	void refreshForUnusableAccountLeavesTheTokenUnused() {
+		VerifiedToken token = new VerifiedToken(EMAIL, null, null, Map.of());
+		when(jwtService.verify("refresh")).thenReturn(token);
+
+		when(principalCache.get(EMAIL)).thenReturn(user(false));
+		assertThatThrownBy(() -> authenticationService.refreshToken("refresh"))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		when(principalCache.get(EMAIL)).thenThrow(new UsernameNotFoundException("User not found"));
+		assertThatThrownBy(() -> authenticationService.refreshToken("refresh"))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		verify(refreshTokenService, never()).rotate(any());
+	}
+
+	@Test
+	void refreshRotatesOnceTheUserIsChecked() {
+		VerifiedToken token = new VerifiedToken(EMAIL, null, null, Map.of());
+		when(jwtService.verify("refresh")).thenReturn(token);
+		when(principalCache.get(EMAIL)).thenReturn(user(true));
+		when(refreshTokenService.rotate(token)).thenReturn("family");
+		when(refreshTokenService.issue(any(), eq("family"))).thenReturn("rotated");
+
+		assertThat(authenticationService.refreshToken("refresh").getRefreshToken()).isEqualTo("rotated");
+	}
+
+	private static AuthenticationRequest request(String password) {
+		return AuthenticationRequest.builder().email(EMAIL).password(password).build();
+	}
+
+	private static User user(boolean enabled) {
+		return User.builder()
+				.id(1L)
+				.firstName("Test")
+				.lastName("User")
+				.email(EMAIL)
+				.password(HASH)
+				.role(Role.USER)
+				.enabled(enabled)
+				.build();
+	}
+}
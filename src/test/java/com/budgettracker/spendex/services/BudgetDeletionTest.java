@@ -0,0 +1,178 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryBalanceRepo;
+import com.budgettracker.spendex.repos.DailyRollupRepo;
+import com.budgettracker.spendex.repos.MonthlyRollupRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// deleting a budget takes everything derived from it along: balances, rollups, cached owners and cached entities
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:budget-deletion-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1idWRnZXQtZGVsZXRpb24tdGVzdC1zaWduaW5nLWtleQ=="
+})
+class BudgetDeletionTest {
+
+	@Nested
+	class Default extends Scenario {
+	}
+
+	@Nested
+	@TestPropertySource(properties = "spendex.cache.second-level.enabled=true")
+	class SecondLevelCache extends Scenario {
+
+		@Autowired
+		private EntityManagerFactory entityManagerFactory;
+
+		@Test
+		void deletedRowsLeaveTheCache() {
+			budgetService.getBudget(budget.getId());
+			categoryService.getCategory(category.getId());
+			assertThat(entityManagerFactory.getCache().contains(Budget.class, budget.getId())).isTrue();
+			assertThat(entityManagerFactory.getCache().contains(Category.class, category.getId())).isTrue();
+
+			budgetService.deleteBudget(budget.getId(), null);
+
+			assertThat(entityManagerFactory.getCache().contains(Budget.class, budget.getId())).isFalse();
+			assertThat(entityManagerFactory.getCache().contains(Category.class, category.getId())).isFalse();
+		}
+	}
+
+	abstract static class Scenario {
+
+		@Autowired
+		protected BudgetService budgetService;
+
+		@Autowired
+		protected CategoryService categoryService;
+
+		@Autowired
+		protected TransactionService transactionService;
+
+		@Autowired
+		protected OwnershipIndex ownershipIndex;
+
+		@Autowired
+		protected UserRepo userRepo;
+
+		@Autowired
+		protected BudgetRepo budgetRepo;
+
+		@Autowired
+		protected CategoryBalanceRepo balanceRepo;
+
+		@Autowired
+		protected DailyRollupRepo dailyRepo;
+
+		@Autowired
+		protected MonthlyRollupRepo monthlyRepo;
+
+		@Autowired
+		protected TransactionTemplate transactionTemplate;
+
+		@Autowired
+		protected EntityManager entityManager;
+
+		protected Budget budget;
+		protected Category category;
+
+		@BeforeEach
+		void setUp() {
+			User owner = userRepo.save(User.builder()
+					.firstName("Test")
+					.lastName("User")
+					.email(UUID.randomUUID() + "@example.com")
+					.password("secret")
+					.role(Role.USER)
+					.build());
+			SecurityContextHolder.getContext().setAuthentication(
+					new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+
+			budget = new Budget();
+			budget.setName("Home");
+			budget.setStartDate(LocalDate.of(2025, 1, 1));
+			budget.setEndDate(LocalDate.of(2025, 12, 31));
+			budget = budgetService.createBudget(budget);
+
+			category = new Category();
+			category.setName("Food");
+			category.setType("expense");
+			category.setBudget(budget);
+			category = categoryService.createCategory(category);
+
+			Transaction transaction = new Transaction();
+			transaction.setDescription("Groceries");
+			transaction.setAmount(new BigDecimal("12.50"));
+			transaction.setDate(LocalDate.of(2025, 3, 1));
+			transaction.setCategory(category);
+			transactionService.createTransaction(transaction);
+		}
+
+		@AfterEach
+		void tearDown() {
+			SecurityContextHolder.clearContext();
+		}
+
+		@Test
+		void derivedRowsAndOwnersGoWithTheBudget() {
+			assertThat(ownershipIndex.categoryOwner(category.getId())).isNotNull();
+
+			budgetService.deleteBudget(budget.getId(), null);
+
+			assertThat(budgetRepo.existsById(budget.getId())).isFalse();
+			assertThat(balanceRepo.findById(category.getId())).isEmpty();
+			assertThat(dailyRepo.findAll()).noneMatch(rollup -> rollup.getId().getCategoryId().equals(category.getId()));
+			assertThat(monthlyRepo.findAll()).noneMatch(rollup -> rollup.getId().getCategoryId().equals(category.getId()));
+			assertThat(ownershipIndex.categoryOwner(category.getId())).isNull();
+			assertThat(ownershipIndex.budgetOwner(budget.getId())).isNull();
+		}
+
+		@Test
+		void budgetChangedSinceItWasReadIsAConflict() {
+			transactionTemplate.executeWithoutResult(status -> {
+				// read into this transaction, then moved on behind its back
+				budgetService.getBudget(budget.getId());
+				entityManager.createQuery("UPDATE Budget b SET b.version = b.version + 1 WHERE b.id = :id")
+						.setParameter("id", budget.getId())
+						.executeUpdate();
+
+				assertThatThrownBy(() -> budgetService.deleteBudget(budget.getId(), null))
+						.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+				status.setRollbackOnly();
+			});
+
+			assertThat(budgetRepo.existsById(budget.getId())).isTrue();
+			assertThat(balanceRepo.findById(category.getId())).isPresent();
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.BudgetSummary;
+import com.budgettracker.spendex.dto.CategoryPatch;
+import com.budgettracker.spendex.dto.CategorySummary;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// the summaries are read from the maintained balances; after creates, an update and a delete they must equal
+// totals worked out by hand from the same fixture
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:budget-summary-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1idWRnZXQtc3VtbWFyeS10ZXN0LXNpZ25pbmcta2V5"
+})
+class BudgetSummaryTest {
+
+	@Autowired
+	private BudgetService budgetService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	private Budget home;
+	private Budget gifts;
+	private Budget empty;
+	private Category food;
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepo.save(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+
+		home = budget("Home");
+		Category salary = category(home, "Salary", "income");
+		food = category(home, "Food", "expense");
+		Category rent = category(home, "Rent", "expense");
+		category(home, "Unused", "expense");
+
+		transaction(salary, "2000.00");
+		transaction(salary, "150.25");
+		transaction(food, "12.50");
+		Transaction changed = transaction(food, "7.45");
+		Transaction removed = transaction(food, "30.00");
+		transaction(rent, "800.00");
+
+		Transaction details = new Transaction();
+		details.setDescription("Bakery");
+		details.setAmount(new BigDecimal("9.99"));
+		details.setDate(LocalDate.of(2025, 3, 2));
+		transactionService.updateTransaction(changed.getId(), details, null);
+		transactionService.deleteTransaction(removed.getId(), null);
+
+		gifts = budget("Gifts");
+		transaction(category(gifts, "Birthday", "income"), "50.00");
+
+		empty = budget("Empty");
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void budgetSummaryMatchesTheFixture() {
+		BudgetSummary summary = budgetService.getBudgetSummary(home.getId());
+
+		// income 2000.00 + 150.25; expense 12.50 + 9.99 (was 7.45, 30.00 deleted) + 800.00
+		assertThat(summary.getTotalIncome()).isEqualByComparingTo("2150.25");
+		assertThat(summary.getTotalExpense()).isEqualByComparingTo("822.49");
+		assertThat(summary.getBalance()).isEqualByComparingTo("1327.76");
+		assertThat(summary.getCategories())
+				.extracting(CategorySummary::name, CategorySummary::type, category -> category.total().setScale(2),
+						CategorySummary::transactionCount)
+				.containsExactly(
+						tuple("Food", "expense", new BigDecimal("22.49"), 2L),
+						tuple("Rent", "expense", new BigDecimal("800.00"), 1L),
+						tuple("Salary", "income", new BigDecimal("2150.25"), 2L),
+						tuple("Unused", "expense", new BigDecimal("0.00"), 0L));
+	}
+
+	@Test
+	void overviewHasEveryBudgetOfTheUser() {
+		List<BudgetSummary> overview = budgetService.getSummaryOverview();
+
+		assertThat(overview)
+				.extracting(BudgetSummary::getBudgetId, summary -> summary.getTotalIncome().setScale(2),
+						summary -> summary.getTotalExpense().setScale(2), summary -> summary.getBalance().setScale(2))
+				.containsExactly(
+						tuple(home.getId(), new BigDecimal("2150.25"), new BigDecimal("822.49"), new BigDecimal("1327.76")),
+						tuple(gifts.getId(), new BigDecimal("50.00"), new BigDecimal("0.00"), new BigDecimal("50.00")),
+						tuple(empty.getId(), new BigDecimal("0.00"), new BigDecimal("0.00"), new BigDecimal("0.00")));
+		assertThat(overview).allMatch(summary -> summary.getCategories() == null);
+	}
+
+	@Test
+	void changingACategoryTypeMovesItsTotal() {
+		categoryService.patchCategory(food.getId(), new CategoryPatch(null, "income", null), null);
+
+		BudgetSummary summary = budgetService.getBudgetSummary(home.getId());
+		assertThat(summary.getTotalIncome()).isEqualByComparingTo("2172.74");
+		assertThat(summary.getTotalExpense()).isEqualByComparingTo("800.00");
+	}
+
+	private Budget budget(String name) {
+		Budget budget = new Budget();
+		budget.setName(name);
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		return budgetService.createBudget(budget);
+	}
+
+	private Category category(Budget budget, String name, String type) {
+		Category category = new Category();
+		category.setName(name);
+		category.setType(type);
+		category.setBudget(budget);
+		return categoryService.createCategory(category);
+	}
+
+	private Transaction transaction(Category category, String amount) {
+		Transaction transaction = new Transaction();
+		transaction.setDescription(category.getName());
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setDate(LocalDate.of(2025, 3, 1));
+		transaction.setCategory(category);
+		return transactionService.createTransaction(transaction);
+	}
+}
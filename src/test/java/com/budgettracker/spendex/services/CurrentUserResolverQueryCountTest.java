@@ -0,0 +1,112 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the user behind a request is looked up once, by the JWT filter, and not again by the services;
+// once the principal is cached the request needs no user lookup at all
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:current-user-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1jdXJyZW50LXVzZXItcXVlcnktY291bnQtc2lnbmluZy1rZXk="
+})
+@AutoConfigureMockMvc
+class CurrentUserResolverQueryCountTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private PrincipalCache principalCache;
+
+	private Statistics statistics;
+	private String token;
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepo.save(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+
+		Budget budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		budgetRepo.save(budget);
+
+		token = jwtService.generateToken(owner);
+		principalCache.evictAll();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void requestLooksUpItsUserOnce() throws Exception {
+		mockMvc.perform(get("/api/budgets").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+
+		assertThat(userLoads()).isEqualTo(1);
+		// the user, then the budgets
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void cachedPrincipalNeedsNoLookup() throws Exception {
+		mockMvc.perform(get("/api/budgets").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+		statistics.clear();
+
+		mockMvc.perform(get("/api/budgets").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/user/me").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+
+		assertThat(userLoads()).isZero();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	private long userLoads() {
+		return statistics.getEntityStatistics(User.class.getName()).getLoadCount();
+	}
+}
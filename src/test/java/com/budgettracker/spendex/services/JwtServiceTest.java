@@ -0,0 +1,104 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+// a token is parsed once and its claims reused until it expires; a token that fails the check is never cached
+class JwtServiceTest {
+
+	private static final String SECRET = "c3BlbmRleC1qd3Qtc2VydmljZS10ZXN0LXNpZ25pbmcta2V5LW9mLTMyLWJ5dGVz";
+	private static final String OTHER_SECRET = "b3RoZXItand0LXNlcnZpY2UtdGVzdC1zaWduaW5nLWtleS1vZi0zMi1ieXRlcw==";
+
+	private static final User USER = User.builder()
+			.id(1L)
+			.firstName("Test")
+			.lastName("User")
+			.email("user@example.com")
+			.password("secret")
+			.role(Role.USER)
+			.build();
+
+	@Test
+	void verifiedClaimsAreReused() {
+		JwtService jwtService = jwtService(SECRET, 60_000);
+		String token = jwtService.generateToken(USER);
+
+		VerifiedToken first = jwtService.verify(token);
+
+		assertThat(jwtService.verify(token)).isSameAs(first);
+		assertThat(first.subject()).isEqualTo(USER.getEmail());
+		assertThat(first.userId()).isEqualTo(USER.getId());
+	}
+
+	@Test
+	void tamperedPayloadIsRejected() {
+		JwtService jwtService = jwtService(SECRET, 60_000);
+		String token = jwtService.generateToken(USER);
+		jwtService.verify(token);
+
+		String[] parts = token.split("\\.");
+		String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+				.replace(USER.getEmail(), "admin@example.com");
+		String tampered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+
+		// twice: the failed check must not have left anything behind
+		assertThatThrownBy(() -> jwtService.verify(tampered)).isInstanceOf(JwtException.class);
+		assertThatThrownBy(() -> jwtService.verify(tampered)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void tamperedSignatureIsRejected() {
+		JwtService jwtService = jwtService(SECRET, 60_000);
+		String token = jwtService.generateToken(USER);
+		// the first signature character carries six bits of the MAC, the last one partly padding
+		int signature = token.lastIndexOf('.') + 1;
+		String tampered = token.substring(0, signature) + (token.charAt(signature) == 'A' ? 'Q' : 'A')
+				+ token.substring(signature + 1);
+
+		assertThatThrownBy(() -> jwtService.verify(tampered)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void tokenSignedWithAnotherKeyIsRejected() {
+		String foreign = jwtService(OTHER_SECRET, 60_000).generateToken(USER);
+
+		assertThatThrownBy(() -> jwtService(SECRET, 60_000).verify(foreign)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void cachedTokenStopsVerifyingOnceExpired() throws InterruptedException {
+		// exp has second precision, two seconds leave at least one before it passes
+		JwtService jwtService = jwtService(SECRET, 2_000);
+		String token = jwtService.generateToken(USER);
+		VerifiedToken verified = jwtService.verify(token);
+		assertThat(jwtService.verify(token)).isSameAs(verified);
+
+		Thread.sleep(Math.max(0, verified.expiresAt().toEpochMilli() - System.currentTimeMillis()) + 100);
+
+		assertThat(verified.isExpired()).isTrue();
+		assertThatThrownBy(() -> jwtService.verify(token)).isInstanceOf(ExpiredJwtException.class);
+	}
+
+	private static JwtService jwtService(String secret, long accessExpiration) {
+		JwtService jwtService = new JwtService(mock(UserDetailsService.class));
+		ReflectionTestUtils.setField(jwtService, "secretKey", secret);
+		ReflectionTestUtils.setField(jwtService, "jwtAccExpiration", accessExpiration);
+		ReflectionTestUtils.setField(jwtService, "jwtRefExpiration", accessExpiration);
+		ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 100L);
+		jwtService.init();
+		return jwtService;
+	}
+}
@@ -0,0 +1,241 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.exceptions.ResourceNotFoundException;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.CategoryBalance;
+import com.budgettracker.spendex.models.DailyRollup;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.RollupKey;
+import com.budgettracker.spendex.models.Transaction;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.BudgetRepo;
+import com.budgettracker.spendex.repos.CategoryBalanceRepo;
+import com.budgettracker.spendex.repos.CategoryRepo;
+import com.budgettracker.spendex.repos.DailyRollupRepo;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// two writers of the same category at once: the first keeps its transaction open until the second has started,
+// the second must wait for it instead of inserting the same derived row
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:ledger-concurrency-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1sZWRnZXItY29uY3VycmVuY3ktdGVzdC1zaWduaW5nLWtleQ=="
+})
+class LedgerConcurrencyTest {
+
+	private static final long HOLD_MILLIS = 300;
+	private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+	private static final LocalDate LATER_DAY = LocalDate.of(2025, 3, 15);
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private LedgerService ledgerService;
+
+	@Autowired
+	private BudgetService budgetService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private BudgetRepo budgetRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	@Autowired
+	private CategoryBalanceRepo balanceRepo;
+
+	@Autowired
+	private DailyRollupRepo dailyRepo;
+
+	private User owner;
+	private Budget budget;
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		owner = userRepo.save(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+
+		budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget.setUser(owner);
+		budget = budgetRepo.save(budget);
+
+		// saved directly, so like a category from before the balance table it has no balance row
+		category = new Category();
+		category.setName("Food");
+		category.setType("expense");
+		category.setBudget(budget);
+		category = categoryRepo.save(category);
+	}
+
+	@Test
+	void concurrentFirstWritesShareOneBalanceRow() throws Exception {
+		inParallel(() -> create("10.00", DAY), () -> create("5.00", DAY));
+
+		CategoryBalance balance = balanceRepo.findById(category.getId()).orElseThrow();
+		assertThat(balance.getTotal()).isEqualByComparingTo("15.00");
+		assertThat(balance.getTransactionCount()).isEqualTo(2);
+	}
+
+	@Test
+	void concurrentDateMovesShareOneRollupRow() throws Exception {
+		Long first = transactionTemplate.execute(status -> create("10.00", LATER_DAY));
+		Long second = transactionTemplate.execute(status -> create("5.00", LATER_DAY));
+
+		// both edits net to zero for the category, only their days change
+		inParallel(() -> move(first, DAY), () -> move(second, DAY));
+
+		DailyRollup moved = dailyRepo.findById(new RollupKey(owner.getId(), category.getId(), DAY)).orElseThrow();
+		assertThat(moved.getTotal()).isEqualByComparingTo("15.00");
+		assertThat(moved.getTransactionCount()).isEqualTo(2);
+		DailyRollup left = dailyRepo.findById(new RollupKey(owner.getId(), category.getId(), LATER_DAY)).orElseThrow();
+		assertThat(left.getTransactionCount()).isZero();
+	}
+
+	@Test
+	void transactionCreatedWhileItsBudgetIsDeletedIsNotFound() throws Exception {
+		Transaction transaction = new Transaction();
+		transaction.setDescription("Groceries");
+		transaction.setAmount(new BigDecimal("10.00"));
+		transaction.setDate(DAY);
+		transaction.setCategory(category);
+
+		assertThatThrownBy(() -> inParallel(
+				asOwner(() -> budgetService.deleteBudget(budget.getId(), null)),
+				asOwner(() -> transactionService.createTransaction(transaction))))
+				.isInstanceOf(ExecutionException.class)
+				.cause()
+				.isInstanceOf(ResourceNotFoundException.class)
+				.hasMessage("Category with id " + category.getId() + " not found");
+		assertThat(transactionRepo.findViewsByCategoryId(category.getId())).isEmpty();
+	}
+
+	@Test
+	void categoryCreatedWhileItsBudgetIsDeletedIsNotFound() throws Exception {
+		Category added = new Category();
+		added.setName("Rent");
+		added.setType("expense");
+		added.setBudget(budget);
+
+		assertThatThrownBy(() -> inParallel(
+				asOwner(() -> budgetService.deleteBudget(budget.getId(), null)),
+				asOwner(() -> categoryService.createCategory(added))))
+				.isInstanceOf(ExecutionException.class)
+				.cause()
+				.isInstanceOf(ResourceNotFoundException.class)
+				.hasMessage("Budget with id " + budget.getId() + " not found");
+		assertThat(categoryRepo.findIdsByBudgetId(budget.getId())).isEmpty();
+	}
+
+	private Long create(String amount, LocalDate date) {
+		Transaction transaction = new Transaction();
+		transaction.setDescription("Groceries");
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setDate(date);
+		transaction.setCategory(category);
+		transaction = transactionRepo.save(transaction);
+
+		TransactionDeltas deltas = new TransactionDeltas();
+		deltas.created(owner.getId(), transaction);
+		ledgerService.record(deltas);
+		return transaction.getId();
+	}
+
+	private void move(Long transactionId, LocalDate date) {
+		Transaction transaction = transactionRepo.findById(transactionId).orElseThrow();
+		LocalDate oldDate = transaction.getDate();
+		transaction.setDate(date);
+
+		TransactionDeltas deltas = new TransactionDeltas();
+		deltas.updated(owner.getId(), transaction, oldDate, transaction.getAmount());
+		ledgerService.record(deltas);
+	}
+
+	private Runnable asOwner(Runnable action) {
+		return () -> {
+			SecurityContextHolder.getContext().setAuthentication(
+					new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+			try {
+				action.run();
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+		};
+	}
+
+	private void inParallel(Runnable first, Runnable second) throws Exception {
+		CountDownLatch firstWritten = new CountDownLatch(1);
+		CountDownLatch secondStarted = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> firstResult = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				first.run();
+				firstWritten.countDown();
+				try {
+					secondStarted.await();
+					// long enough for the second writer to reach the row it has to wait for
+					Thread.sleep(HOLD_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			firstWritten.await();
+			Future<?> secondResult = executor.submit(() -> {
+				secondStarted.countDown();
+				transactionTemplate.executeWithoutResult(status -> second.run());
+			});
+
+			firstResult.get(10, TimeUnit.SECONDS);
+			secondResult.get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.UserProfileUpdateDTO;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// cached principals are served until the user changes; every write path through UserService evicts them
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:principal-cache-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1wcmluY2lwYWwtY2FjaGUtdGVzdC1zaWduaW5nLWtleQ=="
+})
+class PrincipalCacheTest {
+
+	@Autowired
+	private PrincipalCache principalCache;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepo.save(user(UUID.randomUUID() + "@example.com"));
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void repeatedLookupsAreServedFromTheCache() {
+		User first = principalCache.get(user.getEmail());
+		long hits = principalCache.stats().hitCount();
+
+		assertThat(principalCache.get(user.getEmail())).isSameAs(first);
+		assertThat(principalCache.stats().hitCount()).isEqualTo(hits + 1);
+	}
+
+	@Test
+	void profileUpdateEvictsThePrincipal() {
+		User cached = principalCache.get(user.getEmail());
+
+		UserProfileUpdateDTO update = new UserProfileUpdateDTO();
+		update.setFirstName("Renamed");
+		userService.updateProfile(update);
+
+		User reloaded = principalCache.get(user.getEmail());
+		assertThat(reloaded).isNotSameAs(cached);
+		assertThat(reloaded.getFirstName()).isEqualTo("Renamed");
+		// the shared instance was never edited in place
+		assertThat(cached.getFirstName()).isEqualTo("Test");
+	}
+
+	@Test
+	void disablingEvictsThePrincipal() {
+		assertThat(principalCache.get(user.getEmail()).isEnabled()).isTrue();
+
+		userService.toggleUser(user.getId(), false);
+
+		User reloaded = principalCache.get(user.getEmail());
+		assertThat(reloaded.isEnabled()).isFalse();
+		assertThat(reloaded.getTokenVersion()).isEqualTo(user.getTokenVersion() + 1);
+	}
+
+	@Test
+	void unknownEmailsAreNotCached() {
+		String email = UUID.randomUUID() + "@example.com";
+		assertThatThrownBy(() -> principalCache.get(email)).isInstanceOf(UsernameNotFoundException.class);
+
+		userRepo.save(user(email));
+
+		assertThat(principalCache.get(email).getEmail()).isEqualTo(email);
+	}
+
+	@Test
+	void evictedUserIsLoadedAgain() {
+		User cached = principalCache.get(user.getEmail());
+
+		principalCache.evict(user.getEmail());
+
+		assertThat(principalCache.get(user.getEmail())).isNotSameAs(cached);
+	}
+
+	private static User user(String email) {
+		return User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(email)
+				.password("secret")
+				.role(Role.USER)
+				.build();
+	}
+}
@@ -0,0 +1,92 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// the in-memory revocation filters follow committed revocations only
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:refresh-token-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"security.jwt.secret-key=c3BlbmRleC1yZWZyZXNoLXRva2VuLXNlcnZpY2UtdGVzdC1zaWduaW5nLWtleQ=="
+})
+class RefreshTokenServiceTest {
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private User user;
+	private VerifiedToken token;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepo.save(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+		token = jwtService.verify(refreshTokenService.issue(user, refreshTokenService.newFamily()));
+	}
+
+	@Test
+	void rolledBackRevocationLeavesTheFiltersAlone() {
+		transactionTemplate.executeWithoutResult(status -> {
+			refreshTokenService.revokeAllForUser(user.getId());
+			status.setRollbackOnly();
+		});
+
+		assertThat(refreshTokenService.isSessionRevoked(session())).isFalse();
+		assertThat(refreshTokenService.rotate(token)).isEqualTo(token.claims().get(RefreshTokenService.FAMILY_CLAIM));
+	}
+
+	@Test
+	void committedRevocationReachesTheFilters() {
+		refreshTokenService.revokeAllForUser(user.getId());
+
+		assertThat(refreshTokenService.isSessionRevoked(session())).isTrue();
+		assertThatThrownBy(() -> refreshTokenService.rotate(token))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Refresh token has already been used");
+	}
+
+	@Test
+	void reusedTokenRevokesItsFamily() {
+		refreshTokenService.rotate(token);
+
+		assertThatThrownBy(() -> refreshTokenService.rotate(token))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(refreshTokenService.isSessionRevoked(session())).isTrue();
+	}
+
+	// an access token of the same login
+	private VerifiedToken session() {
+		return new VerifiedToken(user.getEmail(), null, null,
+				Map.of(JwtService.SESSION_CLAIM, token.claims().get(RefreshTokenService.FAMILY_CLAIM)));
+	}
+}
@@ -0,0 +1,136 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.dto.ImportStatus;
+import com.budgettracker.spendex.models.Budget;
+import com.budgettracker.spendex.models.Category;
+import com.budgettracker.spendex.models.Role;
+import com.budgettracker.spendex.models.User;
+import com.budgettracker.spendex.repos.TransactionRepo;
+import com.budgettracker.spendex.repos.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// chunks commit on their own: a failing chunk keeps the earlier ones and the status says where to resume
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:transaction-import-${random.uuid};DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.flyway.enabled=false",
+		"spendex.rollups.backfill-on-startup=false",
+		"spendex.import.chunk-size=2",
+		"security.jwt.secret-key=c3BlbmRleC10cmFuc2FjdGlvbi1pbXBvcnQtdGVzdC1zaWduaW5nLWtleQ=="
+})
+class TransactionImportServiceTest {
+
+	@Autowired
+	private TransactionImportService importService;
+
+	@Autowired
+	private BudgetService budgetService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private TransactionRepo transactionRepo;
+
+	@Autowired
+	private UserRepo userRepo;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepo.save(User.builder()
+				.firstName("Test")
+				.lastName("User")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("secret")
+				.role(Role.USER)
+				.build());
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities()));
+
+		Budget budget = new Budget();
+		budget.setName("Home");
+		budget.setStartDate(LocalDate.of(2025, 1, 1));
+		budget.setEndDate(LocalDate.of(2025, 12, 31));
+		budget = budgetService.createBudget(budget);
+
+		category = new Category();
+		category.setName("Food");
+		category.setType("expense");
+		category.setBudget(budget);
+		category = categoryService.createCategory(category);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void completedImportCommitsThroughTheLastLine() throws Exception {
+		ImportStatus status = importAndWait(csv(
+				row("Groceries"),
+				row("Market"),
+				"2025-03-01,-1,Refund," + category.getId()));
+
+		assertThat(status.getState()).isEqualTo("COMPLETED");
+		assertThat(status.getImportedRows()).isEqualTo(2);
+		assertThat(status.getRejectedRows()).isEqualTo(1);
+		assertThat(status.getLastCommittedLine()).isEqualTo(4);
+		assertThat(transactionRepo.findViewsByCategoryId(category.getId())).hasSize(2);
+	}
+
+	@Test
+	void failedChunkKeepsTheCommittedOnes() throws Exception {
+		ImportStatus status = importAndWait(csv(
+				row("Groceries"),
+				row("Market"),
+				"2025-03-01,abc,Bakery," + category.getId(),
+				row("Pharmacy"),
+				// passes the row checks, too long for the column: the second chunk fails on insert
+				row("x".repeat(300))));
+
+		assertThat(status.getState()).isEqualTo("FAILED");
+		assertThat(status.getImportedRows()).isEqualTo(2);
+		assertThat(status.getRejectedRows()).isEqualTo(1);
+		assertThat(status.getLastCommittedLine()).isEqualTo(3);
+		assertThat(status.getErrors()).anyMatch(error -> error.startsWith("Line 4: "));
+		assertThat(status.getErrors()).anyMatch(error -> error.startsWith("Import stopped: ")
+				&& error.endsWith("rows up to line 3 are saved"));
+		assertThat(transactionRepo.findViewsByCategoryId(category.getId())).hasSize(2);
+	}
+
+	private ImportStatus importAndWait(String content) throws Exception {
+		ImportStatus status = importService.startImport(new MockMultipartFile("file", "import.csv", "text/csv",
+				content.getBytes(StandardCharsets.UTF_8)));
+		for (int i = 0; i < 200 && status.getFinishedAt() == null; i++) {
+			Thread.sleep(50);
+			status = importService.getStatus(status.getId());
+		}
+		return status;
+	}
+
+	private String row(String description) {
+		return "2025-03-01,12.50," + description + "," + category.getId();
+	}
+
+	private static String csv(String... rows) {
+		return "date,amount,description,category_id\n" + String.join("\n", rows) + "\n";
+	}
+}
@@ -0,0 +1,66 @@
+package com.budgettracker.spendex.services;
+
+import com.budgettracker.spendex.exceptions.PreconditionFailedException;
+import com.budgettracker.spendex.exceptions.PreconditionRequiredException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// how an If-Match header turns into the version a write expects
+class VersionGuardTest {
+
+	@Test
+	void strongTagIsTheVersion() {
+		assertThat(guard(false).expectedVersion("\"3\"")).isEqualTo(3L);
+		assertThat(guard(false).expectedVersion(" \"3\" ")).isEqualTo(3L);
+	}
+
+	@Test
+	void anyTagSkipsTheCheck() {
+		assertThat(guard(false).expectedVersion("*")).isNull();
+		assertThat(guard(true).expectedVersion("*")).isNull();
+	}
+
+	@Test
+	void weakTagNeverMatches() {
+		assertThatThrownBy(() -> guard(false).expectedVersion("W/\"3\""))
+				.isInstanceOf(PreconditionFailedException.class);
+	}
+
+	@Test
+	void missingHeaderIsOptionalUnlessRequired() {
+		assertThat(guard(false).expectedVersion(null)).isNull();
+		assertThat(guard(false).expectedVersion(" ")).isNull();
+
+		assertThatThrownBy(() -> guard(true).expectedVersion(null))
+				.isInstanceOf(PreconditionRequiredException.class);
+		assertThatThrownBy(() -> guard(true).expectedVersion(""))
+				.isInstanceOf(PreconditionRequiredException.class);
+	}
+
+	@Test
+	void malformedHeaderIsABadRequest() {
+		for (String ifMatch : new String[]{"3", "\"\"", "\"3\", \"4\"", "\"three\""}) {
+			assertThatThrownBy(() -> guard(false).expectedVersion(ifMatch))
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	void staleVersionFailsTheCheck() {
+		guard(false).check(null, 4L, "Budget", 1L);
+		guard(false).check(4L, 4L, "Budget", 1L);
+
+		assertThatThrownBy(() -> guard(false).check(3L, 4L, "Budget", 1L))
+				.isInstanceOf(PreconditionFailedException.class)
+				.hasMessage("Budget with id 1 has changed since it was read, current version is 4");
+	}
+
+	private static VersionGuard guard(boolean requireIfMatch) {
+		VersionGuard guard = new VersionGuard();
+		ReflectionTestUtils.setField(guard, "requireIfMatch", requireIfMatch);
+		return guard;
+	}
+}
@@ -0,0 +1,120 @@
+package com.budgettracker.spendex.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// open addressing with backward-shift deletion, checked against a HashMap; plus the bound and concurrent readers
+class ConcurrentLongLongMapTest {
+
+	@Test
+	void putGetAndOverwrite() {
+		ConcurrentLongLongMap map = new ConcurrentLongLongMap(1024);
+
+		map.put(7, 70);
+		map.put(7, 71);
+
+		assertThat(map.get(7)).isEqualTo(71);
+		assertThat(map.get(8)).isEqualTo(ConcurrentLongLongMap.NO_VALUE);
+		assertThat(map.size()).isEqualTo(1);
+	}
+
+	@Test
+	void onlyPositiveKeysAreStored() {
+		ConcurrentLongLongMap map = new ConcurrentLongLongMap(1024);
+
+		assertThat(map.get(0)).isEqualTo(ConcurrentLongLongMap.NO_VALUE);
+		assertThat(map.get(-1)).isEqualTo(ConcurrentLongLongMap.NO_VALUE);
+		assertThatThrownBy(() -> map.put(0, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> map.put(-5, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new ConcurrentLongLongMap(0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void removeKeepsTheOtherKeysReachable() {
+		// enough keys to resize every segment and to form long probe runs that removals have to close
+		ConcurrentLongLongMap map = new ConcurrentLongLongMap(1_000_000);
+		Map<Long, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 50_000; i++) {
+			long key = 1 + random.nextInt(5_000);
+			if (random.nextInt(3) == 0) {
+				map.remove(key);
+				expected.remove(key);
+			} else {
+				map.put(key, i);
+				expected.put(key, (long) i);
+			}
+		}
+
+		for (long key = 1; key <= 5_000; key++) {
+			assertThat(map.get(key)).as("key %d", key).isEqualTo(expected.getOrDefault(key, ConcurrentLongLongMap.NO_VALUE));
+		}
+		assertThat(map.size()).isEqualTo(expected.size());
+	}
+
+	@Test
+	void removingAnAbsentKeyChangesNothing() {
+		ConcurrentLongLongMap map = new ConcurrentLongLongMap(1024);
+		map.put(1, 10);
+
+		map.remove(2);
+		map.remove(0);
+
+		assertThat(map.size()).isEqualTo(1);
+		assertThat(map.get(1)).isEqualTo(10);
+	}
+
+	@Test
+	void fullSegmentsStartOver() {
+		ConcurrentLongLongMap map = new ConcurrentLongLongMap(160);
+
+		for (long key = 1; key <= 10_000; key++) {
+			map.put(key, key);
+			assertThat(map.size()).isLessThanOrEqualTo(160);
+		}
+		// the latest key is always kept
+		assertThat(map.get(10_000)).isEqualTo(10_000);
+	}
+
+	@Test
+	void readersNeverSeeAWrongValue() {
+		ConcurrentLongLongMap map = new ConcurrentLongLongMap(1_000_000);
+		for (long key = 1; key <= 1_000; key++) {
+			map.put(key, key * 10);
+		}
+		AtomicBoolean done = new AtomicBoolean();
+
+		// the writer grows the segments and removes and restores keys while the reader looks them up
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			for (long key = 1_001; key <= 100_000; key++) {
+				map.put(key, key * 10);
+				long moved = 1 + key % 1_000;
+				map.remove(moved);
+				map.put(moved, moved * 10);
+			}
+			done.set(true);
+		});
+
+		while (!done.get()) {
+			for (long key = 1; key <= 1_000; key++) {
+				long value = map.get(key);
+				if (value != ConcurrentLongLongMap.NO_VALUE) {
+					assertThat(value).isEqualTo(key * 10);
+				}
+			}
+		}
+		writer.join();
+		for (long key = 1; key <= 1_000; key++) {
+			assertThat(map.get(key)).isEqualTo(key * 10);
+		}
+	}
+}
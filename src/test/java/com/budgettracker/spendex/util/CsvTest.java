@@ -0,0 +1,58 @@
+package com.budgettracker.spendex.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// RFC 4180 quoting on the way out and splitting on the way in
+class CsvTest {
+
+	@Test
+	void plainValuesAreWrittenAsIs() {
+		assertThat(Csv.escape("Groceries")).isEqualTo("Groceries");
+		assertThat(Csv.escape(new BigDecimal("12.50"))).isEqualTo("12.50");
+		assertThat(Csv.escape(LocalDate.of(2025, 3, 1))).isEqualTo("2025-03-01");
+		assertThat(Csv.escape(null)).isEmpty();
+	}
+
+	@Test
+	void commasQuotesAndLineBreaksAreQuoted() {
+		assertThat(Csv.escape("Bread, milk")).isEqualTo("\"Bread, milk\"");
+		assertThat(Csv.escape("The \"good\" one")).isEqualTo("\"The \"\"good\"\" one\"");
+		assertThat(Csv.escape("first\nsecond")).isEqualTo("\"first\nsecond\"");
+		assertThat(Csv.escape("first\r\nsecond")).isEqualTo("\"first\r\nsecond\"");
+	}
+
+	@Test
+	void parseSplitsOnUnquotedCommas() {
+		assertThat(Csv.parseLine("2025-03-01,12.50,Groceries,7")).containsExactly("2025-03-01", "12.50", "Groceries", "7");
+		assertThat(Csv.parseLine("a,,c,")).containsExactly("a", "", "c", "");
+		assertThat(Csv.parseLine("")).containsExactly("");
+	}
+
+	@Test
+	void parseHonoursQuotedFields() {
+		assertThat(Csv.parseLine("\"Bread, milk\",\"The \"\"good\"\" one\",x"))
+				.containsExactly("Bread, milk", "The \"good\" one", "x");
+		assertThat(Csv.parseLine("\"\",\"\"\"\"")).containsExactly("", "\"");
+	}
+
+	@Test
+	void parseKeepsATrailingCarriageReturnInTheLastField() {
+		// readLine strips CRLF; a lone CR left over stays with the value, the import trims it
+		assertThat(Csv.parseLine("a,b\r")).containsExactly("a", "b\r");
+		assertThat(Csv.parseLine("a,\"b\r\"")).containsExactly("a", "b\r");
+	}
+
+	@Test
+	void escapedValuesParseBack() {
+		List<String> values = List.of("plain", "Bread, milk", "The \"good\" one", "", "\"", ",", "trailing\r");
+		String line = String.join(",", values.stream().map(Csv::escape).toList());
+
+		assertThat(Csv.parseLine(line)).containsExactlyElementsOf(values);
+	}
+}
@@ -0,0 +1,113 @@
+package com.budgettracker.spendex.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// range bounds over the sorted day column and the per-type prefix sums behind them
+class SpendingColumnsTest {
+
+	private static final long FOOD = 7;
+	private static final long SALARY = 3;
+
+	// days 10, 10, 12, 15; category 3 is income
+	private final SpendingColumns columns = SpendingColumns.builder()
+			.add(10, 1250, FOOD, false)
+			.add(10, 100000, SALARY, true)
+			.add(12, 750, FOOD, false)
+			.add(15, 5000, SALARY, true)
+			.build();
+
+	@Test
+	void boundsFindTheFirstRowOfADayAndTheFirstPastIt() {
+		assertThat(columns.lowerBound(Integer.MIN_VALUE)).isZero();
+		assertThat(columns.lowerBound(10)).isZero();
+		assertThat(columns.lowerBound(11)).isEqualTo(2);
+		assertThat(columns.lowerBound(16)).isEqualTo(4);
+
+		assertThat(columns.upperBound(9)).isZero();
+		assertThat(columns.upperBound(10)).isEqualTo(2);
+		assertThat(columns.upperBound(14)).isEqualTo(3);
+		assertThat(columns.upperBound(Integer.MAX_VALUE)).isEqualTo(4);
+	}
+
+	@Test
+	void sumsAreSplitByType() {
+		assertThat(columns.expenseSum(Integer.MIN_VALUE, Integer.MAX_VALUE)).isEqualTo(2000);
+		assertThat(columns.incomeSum(Integer.MIN_VALUE, Integer.MAX_VALUE)).isEqualTo(105000);
+		assertThat(columns.count(Integer.MIN_VALUE, Integer.MAX_VALUE)).isEqualTo(4);
+	}
+
+	@Test
+	void oneDayRangeIsInclusive() {
+		assertThat(columns.expenseSum(10, 10)).isEqualTo(1250);
+		assertThat(columns.incomeSum(10, 10)).isEqualTo(100000);
+		assertThat(columns.count(10, 10)).isEqualTo(2);
+
+		assertThat(columns.count(15, 15)).isEqualTo(1);
+		assertThat(columns.incomeSum(15, 15)).isEqualTo(5000);
+	}
+
+	@Test
+	void emptyRangesSumToZero() {
+		// between rows, before the first, after the last, and reversed
+		assertThat(columns.count(11, 11)).isZero();
+		assertThat(columns.expenseSum(11, 11)).isZero();
+		assertThat(columns.count(Integer.MIN_VALUE, 9)).isZero();
+		assertThat(columns.count(16, Integer.MAX_VALUE)).isZero();
+		assertThat(columns.count(15, 10)).isZero();
+	}
+
+	@Test
+	void emptyColumnsHaveNothingInAnyRange() {
+		SpendingColumns empty = SpendingColumns.builder().build();
+
+		assertThat(empty.size()).isZero();
+		assertThat(empty.categoryCount()).isZero();
+		assertThat(empty.count(Integer.MIN_VALUE, Integer.MAX_VALUE)).isZero();
+		assertThat(empty.expenseSum(Integer.MIN_VALUE, Integer.MAX_VALUE)).isZero();
+		assertThat(empty.incomeSum(Integer.MIN_VALUE, Integer.MAX_VALUE)).isZero();
+	}
+
+	@Test
+	void groupByCategoryHonoursMaskAndBand() {
+		long[] totals = new long[columns.categoryCount()];
+		int[] counts = new int[columns.categoryCount()];
+		boolean[] mask = new boolean[columns.categoryCount()];
+		mask[columns.categoryIndex(FOOD)] = true;
+
+		columns.groupByCategory(Integer.MIN_VALUE, Integer.MAX_VALUE, mask, 1000, Long.MAX_VALUE, totals, counts);
+
+		assertThat(totals[columns.categoryIndex(FOOD)]).isEqualTo(1250);
+		assertThat(counts[columns.categoryIndex(FOOD)]).isEqualTo(1);
+		assertThat(counts[columns.categoryIndex(SALARY)]).isZero();
+	}
+
+	@Test
+	void categoriesAreIndexedInIdOrder() {
+		assertThat(columns.categoryIndex(SALARY)).isZero();
+		assertThat(columns.categoryIndex(FOOD)).isEqualTo(1);
+		assertThat(columns.categoryIndex(99)).isEqualTo(-1);
+		assertThat(columns.isIncome(columns.categoryIndex(SALARY))).isTrue();
+		assertThat(columns.isIncome(columns.categoryIndex(FOOD))).isFalse();
+	}
+
+	@Test
+	void rowsOutOfDateOrderAreRejected() {
+		assertThatThrownBy(() -> SpendingColumns.builder().add(10, 1, FOOD, false).add(9, 1, FOOD, false))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void builderGrowsPastItsInitialCapacity() {
+		SpendingColumns.Builder builder = SpendingColumns.builder();
+		for (int day = 0; day < 200; day++) {
+			builder.add(day, 100, FOOD, false);
+		}
+		SpendingColumns grown = builder.build();
+
+		assertThat(grown.size()).isEqualTo(200);
+		assertThat(grown.expenseSum(50, 149)).isEqualTo(10000);
+	}
+}
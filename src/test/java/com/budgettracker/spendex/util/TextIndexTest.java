@@ -0,0 +1,109 @@
+package com.budgettracker.spendex.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// prefix matching over the sorted term map, replacement and removal of documents, and keyset order
+class TextIndexTest {
+
+	private static final int TOP = Integer.MAX_VALUE;
+
+	@Test
+	void queryTokensMatchAsPrefixes() {
+		TextIndex index = new TextIndex();
+		index.put(1, 10, "Uber ride");
+		index.put(2, 10, "Ubiquiti router");
+		index.put(3, 10, "Bus");
+
+		assertThat(index.search("ub", TOP, 0, 10)).containsExactly(2L, 1L);
+		assertThat(index.search("UBE", TOP, 0, 10)).containsExactly(1L);
+		assertThat(index.search("ride", TOP, 0, 10)).containsExactly(1L);
+		assertThat(index.search("r", TOP, 0, 10)).containsExactly(2L, 1L);
+	}
+
+	@Test
+	void prefixRangeEndsAfterEveryContinuation() {
+		// the range [token, token + Character.MAX_VALUE] must take in letters past 'z' and digits, and stop at
+		// the next prefix
+		TextIndex index = new TextIndex();
+		index.put(1, 10, "cafe");
+		index.put(2, 10, "café");
+		index.put(3, 10, "caf9");
+		index.put(4, 10, "cafж");
+		index.put(5, 10, "cag");
+		index.put(6, 10, "caf");
+
+		assertThat(index.search("caf", TOP, 0, 10)).containsExactly(6L, 4L, 3L, 2L, 1L);
+		assertThat(index.search("café", TOP, 0, 10)).containsExactly(2L);
+	}
+
+	@Test
+	void everyTokenMustMatch() {
+		TextIndex index = new TextIndex();
+		index.put(1, 10, "Coffee at the station");
+		index.put(2, 10, "Coffee beans");
+
+		assertThat(index.search("coffee sta", TOP, 0, 10)).containsExactly(1L);
+		assertThat(index.search("coffee tea", TOP, 0, 10)).isEmpty();
+		assertThat(index.search("  --  ", TOP, 0, 10)).isEmpty();
+	}
+
+	@Test
+	void putReplacesTheDocument() {
+		TextIndex index = new TextIndex();
+		index.put(1, 10, "Groceries");
+		long bytes = index.estimatedBytes();
+
+		index.put(1, 12, "Pharmacy");
+
+		assertThat(index.search("groc", TOP, 0, 10)).isEmpty();
+		assertThat(index.search("pharm", TOP, 0, 10)).containsExactly(1L);
+		assertThat(index.size()).isEqualTo(1);
+		assertThat(index.estimatedBytes()).isEqualTo(bytes);
+	}
+
+	@Test
+	void removeDropsTheDocumentAndItsTerms() {
+		TextIndex index = new TextIndex();
+		long empty = index.estimatedBytes();
+		index.put(1, 10, "Groceries market");
+		index.put(2, 10, "Market stall");
+
+		index.remove(1);
+		index.remove(1);
+		index.remove(99);
+
+		assertThat(index.search("groc", TOP, 0, 10)).isEmpty();
+		assertThat(index.search("market", TOP, 0, 10)).containsExactly(2L);
+		assertThat(index.size()).isEqualTo(1);
+
+		index.remove(2);
+		assertThat(index.estimatedBytes()).isEqualTo(empty);
+	}
+
+	@Test
+	void resultsPageNewestFirst() {
+		TextIndex index = new TextIndex();
+		index.put(1, 10, "Rent");
+		index.put(2, 12, "Rent");
+		index.put(3, 12, "Rent");
+		index.put(4, 11, "Rent");
+
+		List<Long> first = index.search("rent", TOP, 0, 2);
+		assertThat(first).containsExactly(3L, 2L);
+		// continue strictly after (day 12, id 2)
+		assertThat(index.search("rent", 12, 2, 2)).containsExactly(4L, 1L);
+		assertThat(index.search("rent", 10, 1, 2)).isEmpty();
+	}
+
+	@Test
+	void tokenizeLowerCasesSplitsAndDeduplicates() {
+		assertThat(TextIndex.tokenize("Uber-Eats, UBER eats #42")).containsExactly("42", "eats", "uber");
+		assertThat(TextIndex.tokenize("x".repeat(80))).containsExactly("x".repeat(64));
+		assertThat(TextIndex.tokenize(null)).isEmpty();
+		assertThat(TextIndex.tokenize(" ")).isEmpty();
+	}
+}
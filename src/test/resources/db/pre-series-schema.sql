@@ -0,0 +1,24 @@
+-- a database of the baseline release: created by ddl-auto=update, no flyway history, one user with data
+create table users (id bigint generated by default as identity primary key, first_name varchar(255) not null,
+    last_name varchar(255) not null, email varchar(255) not null unique, password varchar(255) not null,
+    role varchar(255) check (role in ('USER', 'ADMIN')), created_at timestamp(6) not null,
+    updated_at timestamp(6) not null, enabled boolean not null);
+create table budget (id bigint generated by default as identity primary key, name varchar(255),
+    description varchar(255), start_date date, end_date date, created_at timestamp(6) not null,
+    updated_at timestamp(6) not null, user_id bigint references users (id));
+create table category (id bigint generated by default as identity primary key, name varchar(255), type varchar(255),
+    icon_url varchar(255), created_at timestamp(6) not null, updated_at timestamp(6) not null,
+    budget_id bigint references budget (id));
+create table transaction (id bigint generated by default as identity primary key, description varchar(255),
+    amount numeric(38, 2), date date, created_at timestamp(6) not null, updated_at timestamp(6) not null,
+    category_id bigint references category (id));
+
+insert into users (first_name, last_name, email, password, role, created_at, updated_at, enabled)
+values ('Old', 'User', 'old@example.com', 'secret', 'USER', current_timestamp, current_timestamp, true);
+insert into budget (name, start_date, end_date, created_at, updated_at, user_id)
+values ('Home', date '2025-01-01', date '2025-12-31', current_timestamp, current_timestamp, 1);
+insert into category (name, type, created_at, updated_at, budget_id)
+values ('Food', 'expense', current_timestamp, current_timestamp, 1);
+insert into transaction (description, amount, date, created_at, updated_at, category_id)
+values ('Groceries', 12.50, date '2025-03-01', current_timestamp, current_timestamp, 1),
+       ('Bakery', 3.20, date '2025-03-02', current_timestamp, current_timestamp, 1);